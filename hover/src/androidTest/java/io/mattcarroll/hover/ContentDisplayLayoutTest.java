@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.content.Context;
+import android.graphics.Point;
+import android.test.InstrumentationTestCase;
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies that a {@link ContentDisplay} follows its selected tab through a dock animation without
+ * any layout passes, and only asks for layout when the tab's resting position changes.
+ *
+ * The {@code ContentDisplay} isn't attached to a window, so nothing clears a layout request once
+ * it's made. Checking {@link View#isLayoutRequested()} on every frame catches any request made
+ * during the animation.
+ */
+public class ContentDisplayLayoutTest extends InstrumentationTestCase {
+
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 1920;
+
+    private Context mContext;
+    private ContentDisplay mContentDisplay;
+    private FloatingTab mTab;
+    private int mFrameCount;
+    private int mFramesWithLayoutRequested;
+    private boolean mIsCountingFrames;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mIsCountingFrames) {
+                return;
+            }
+            ++mFrameCount;
+            if (mContentDisplay.isLayoutRequested()) {
+                ++mFramesWithLayoutRequested;
+            }
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mContentDisplay = new ContentDisplay(mContext);
+                mTab = new FloatingTab(mContext, "test");
+                mTab.setDock(new PositionDock(new Point(SCREEN_WIDTH / 2, 300)));
+                mTab.moveTo(SCREEN_WIDTH / 2, 1500);
+                mContentDisplay.selectedTabIs(mTab);
+                layOutContentDisplay();
+            }
+        });
+    }
+
+    public void testDockAnimationDoesNotRequestLayout() throws Throwable {
+        final CountDownLatch dockedLatch = new CountDownLatch(1);
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mIsCountingFrames = true;
+                Choreographer.getInstance().postFrameCallback(mFrameCallback);
+                mTab.dock(new Runnable() {
+                    @Override
+                    public void run() {
+                        dockedLatch.countDown();
+                    }
+                });
+            }
+        });
+
+        assertTrue("Tab never docked.", dockedLatch.await(5, TimeUnit.SECONDS));
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mIsCountingFrames = false;
+            }
+        });
+
+        assertTrue("No frames were observed during the dock animation.", mFrameCount > 0);
+        assertEquals("Frames with a layout pass requested during the dock animation.", 0, mFramesWithLayoutRequested);
+    }
+
+    public void testDockChangeRequestsLayout() throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mTab.setDock(new PositionDock(new Point(SCREEN_WIDTH / 2, 300)));
+                assertFalse("Same resting position should not need layout.", mContentDisplay.isLayoutRequested());
+
+                mTab.setDock(new PositionDock(new Point(SCREEN_WIDTH / 2, 600)));
+                assertTrue("New resting position should need layout.", mContentDisplay.isLayoutRequested());
+            }
+        });
+    }
+
+    private void layOutContentDisplay() {
+        mContentDisplay.measure(
+                View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, View.MeasureSpec.EXACTLY)
+        );
+        mContentDisplay.layout(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+    }
+}
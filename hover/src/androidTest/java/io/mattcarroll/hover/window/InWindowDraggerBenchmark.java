@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover.window;
+
+import android.content.Context;
+import android.graphics.Point;
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.WindowManager;
+
+import io.mattcarroll.hover.Dragger;
+import io.mattcarroll.hover.overlay.OverlayPermission;
+
+/**
+ * Compares the time it takes to go from a drop to a re-armed drag when the drag touch window is
+ * added/removed for every dock (the original behavior) versus when {@link InWindowDragger} keeps
+ * one long-lived touch window around.
+ *
+ * Requires the draw overlay permission. Fails if the long-lived touch window isn't faster. Results
+ * are also written to logcat under the tag "InWindowDraggerBenchmark".
+ */
+public class InWindowDraggerBenchmark extends InstrumentationTestCase {
+
+    private static final String TAG = "InWindowDraggerBenchmark";
+    private static final int WARM_UP_CYCLES = 10;
+    private static final int MEASURED_CYCLES = 100;
+    private static final int TOUCH_AREA_DIAMETER = 200;
+
+    private Context mContext;
+    private WindowViewController mWindowViewController;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+        mWindowViewController = new WindowViewController(
+                (WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE)
+        );
+    }
+
+    public void testDropToRearmedDrag() throws Throwable {
+        if (!OverlayPermission.hasRuntimePermissionToDrawOverlay(mContext)) {
+            Log.w(TAG, "Skipping benchmark. No permission to draw overlays.");
+            return;
+        }
+
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                Point dockPosition = new Point(300, 300);
+
+                runAddRemoveCycles(WARM_UP_CYCLES, dockPosition);
+                long addRemoveNanos = runAddRemoveCycles(MEASURED_CYCLES, dockPosition);
+
+                InWindowDragger dragger = new InWindowDragger(
+                        mContext,
+                        mWindowViewController,
+                        TOUCH_AREA_DIAMETER,
+                        ViewConfiguration.get(mContext).getScaledTouchSlop()
+                );
+                dragger.activate(NO_OP_DRAG_LISTENER, dockPosition);
+                runPersistentCycles(dragger, WARM_UP_CYCLES, dockPosition);
+                long persistentNanos = runPersistentCycles(dragger, MEASURED_CYCLES, dockPosition);
+                dragger.release();
+
+                Log.i(TAG, "Drop to re-armed drag. Add/remove window: "
+                        + (addRemoveNanos / MEASURED_CYCLES / 1000) + "us per cycle, persistent window: "
+                        + (persistentNanos / MEASURED_CYCLES / 1000) + "us per cycle.");
+
+                assertTrue("Keeping the touch window around should be faster than re-adding it.",
+                        persistentNanos < addRemoveNanos);
+            }
+        });
+    }
+
+    // Replicates what InWindowDragger used to do on every deactivate()/activate().
+    private long runAddRemoveCycles(int cycleCount, Point dockPosition) {
+        View dragView = new View(mContext);
+        mWindowViewController.addView(TOUCH_AREA_DIAMETER, TOUCH_AREA_DIAMETER, true, dragView);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < cycleCount; ++i) {
+            mWindowViewController.removeView(dragView);
+            dragView = new View(mContext);
+            mWindowViewController.addView(TOUCH_AREA_DIAMETER, TOUCH_AREA_DIAMETER, true, dragView);
+            mWindowViewController.moveViewTo(
+                    dragView,
+                    dockPosition.x - (TOUCH_AREA_DIAMETER / 2),
+                    dockPosition.y - (TOUCH_AREA_DIAMETER / 2)
+            );
+        }
+        long elapsed = System.nanoTime() - start;
+
+        mWindowViewController.removeView(dragView);
+        return elapsed;
+    }
+
+    private long runPersistentCycles(InWindowDragger dragger, int cycleCount, Point dockPosition) {
+        long start = System.nanoTime();
+        for (int i = 0; i < cycleCount; ++i) {
+            dragger.deactivate();
+            dragger.activate(NO_OP_DRAG_LISTENER, dockPosition);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static final Dragger.DragListener NO_OP_DRAG_LISTENER = new Dragger.DragListener() {
+        @Override
+        public void onPress(float x, float y) { }
+
+        @Override
+        public void onDragStart(float x, float y) { }
+
+        @Override
+        public void onDragTo(float x, float y) { }
+
+        @Override
+        public void onReleasedAt(float x, float y, float velocityX, float velocityY) { }
+
+        @Override
+        public void onTap() { }
+    };
+}
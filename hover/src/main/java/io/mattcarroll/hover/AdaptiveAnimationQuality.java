@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Watches how long frames take while Hover animates and switches Hover to cheaper animations when
+ * the device can't keep up.
+ *
+ * {@link SpringEngine} reports the time between consecutive frames of its running animations.
+ * Frames are judged in windows of {@link #WINDOW_FRAME_COUNT}.  A window with too many janky frames
+ * reduces quality right away.  Quality is only restored after several smooth windows in a row, so
+ * that a device on the edge doesn't flip back and forth.
+ *
+ * While quality is reduced:
+ * <ul>
+ *     <li>the selected tab jumps to its dock when the menu expands,</li>
+ *     <li>the other tabs appear together instead of one after another, and</li>
+ *     <li>the shade shows and hides without fading.</li>
+ * </ul>
+ *
+ * Must only be used from the main thread.
+ */
+public final class AdaptiveAnimationQuality {
+
+    // A frame is janky if it took longer than 1.5 frames at 60Hz.
+    static final long JANK_FRAME_INTERVAL_IN_NANOS = 25_000_000L;
+    static final int WINDOW_FRAME_COUNT = 20;
+    // Janky frames in a window that reduce quality.
+    static final int JANKY_FRAMES_TO_REDUCE = 4;
+    // Janky frames a window may have and still count as smooth.
+    static final int JANKY_FRAMES_TO_STAY_SMOOTH = 1;
+    static final int SMOOTH_WINDOWS_TO_RESTORE = 3;
+
+    private static AdaptiveAnimationQuality sInstance;
+
+    @NonNull
+    public static synchronized AdaptiveAnimationQuality getInstance() {
+        if (null == sInstance) {
+            sInstance = new AdaptiveAnimationQuality();
+        }
+        return sInstance;
+    }
+
+    private boolean mIsEnabled = true;
+    private boolean mIsReduced = false;
+    private int mWindowFrameCount = 0;
+    private int mWindowJankyFrameCount = 0;
+    private int mSmoothWindowCount = 0;
+
+    AdaptiveAnimationQuality() { }
+
+    /**
+     * Enables or disables adapting animation quality.  Disabling restores full quality.
+     */
+    public void setEnabled(boolean isEnabled) {
+        mIsEnabled = isEnabled;
+        if (!isEnabled) {
+            mIsReduced = false;
+            resetWindow();
+            mSmoothWindowCount = 0;
+        }
+    }
+
+    public boolean isEnabled() {
+        return mIsEnabled;
+    }
+
+    /**
+     * Returns true if Hover should use its cheaper animations.
+     */
+    public boolean isReduced() {
+        return mIsReduced;
+    }
+
+    /**
+     * Called with the time between two consecutive animation frames.  Called every frame, so this
+     * must not allocate.
+     */
+    void onFrame(long frameIntervalInNanos) {
+        if (!mIsEnabled) {
+            return;
+        }
+
+        ++mWindowFrameCount;
+        if (frameIntervalInNanos > JANK_FRAME_INTERVAL_IN_NANOS) {
+            ++mWindowJankyFrameCount;
+        }
+
+        if (!mIsReduced && mWindowJankyFrameCount >= JANKY_FRAMES_TO_REDUCE) {
+            mIsReduced = true;
+            mSmoothWindowCount = 0;
+            resetWindow();
+        } else if (mWindowFrameCount >= WINDOW_FRAME_COUNT) {
+            onWindowFinished();
+        }
+    }
+
+    private void onWindowFinished() {
+        if (mIsReduced) {
+            if (mWindowJankyFrameCount <= JANKY_FRAMES_TO_STAY_SMOOTH) {
+                ++mSmoothWindowCount;
+                if (mSmoothWindowCount >= SMOOTH_WINDOWS_TO_RESTORE) {
+                    mIsReduced = false;
+                    mSmoothWindowCount = 0;
+                }
+            } else {
+                mSmoothWindowCount = 0;
+            }
+        }
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        mWindowFrameCount = 0;
+        mWindowJankyFrameCount = 0;
+    }
+}
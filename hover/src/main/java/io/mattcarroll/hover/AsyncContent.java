@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.Nullable;
+import android.view.View;
+
+/**
+ * {@link Content} whose {@code View} hierarchy is expensive to build and can be built on a
+ * background thread.  When a {@link HoverView} displays {@code AsyncContent} that isn't inflated
+ * yet, it shows the placeholder, if any, inflates the content in the background, and swaps the
+ * content in once it's ready.  Selecting a section never waits for its content to inflate.
+ */
+public interface AsyncContent extends Content {
+
+    /**
+     * Returns true if {@link #inflate()} has completed.  May be called from any thread.
+     *
+     * @return true if this content is ready to be displayed
+     */
+    boolean isInflated();
+
+    /**
+     * Builds this content's {@code View} hierarchy.  Called once, on a background thread.  The
+     * hierarchy isn't attached to a window yet, so the usual restriction to the main thread
+     * doesn't apply to it, but nothing else may be touched here.
+     *
+     * Only build plain, self-contained {@code View}s here.  Widgets that create {@code Handler}s,
+     * scrollers or animators, e.g., {@code RecyclerView}s and their {@code LayoutManager}s, expect
+     * the main thread.  Set those up on the main thread, e.g., in
+     * {@code View#onAttachedToWindow()}.
+     */
+    void inflate();
+
+    /**
+     * Returns a lightweight {@code View} to display while this content inflates, or null to display
+     * nothing.  Called on the main thread.
+     *
+     * @return a placeholder View, or null
+     */
+    @Nullable
+    View getPlaceholderView();
+
+}
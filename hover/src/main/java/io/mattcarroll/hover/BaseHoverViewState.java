@@ -55,8 +55,11 @@ abstract class BaseHoverViewState implements HoverViewState {
     @Override
     public void removeFromWindow() {
         if (mHoverView.mIsAddedToWindow) {
+            // The Dragger may keep a window of its own around. Take it down with us.
+            mHoverView.mDragger.release();
             mHoverView.mWindowViewController.removeView(mHoverView);
             mHoverView.mIsAddedToWindow = false;
+            mHoverView.expandWindowToScreen();
         }
     }
 
@@ -75,4 +78,14 @@ abstract class BaseHoverViewState implements HoverViewState {
             mHoverView.mWindowViewController.makeUntouchable(mHoverView);
         }
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // No-op by default.
+    }
+
+    @Override
+    public void onExpandPrewarmingChanged(boolean enabled) {
+        // No-op by default.
+    }
 }
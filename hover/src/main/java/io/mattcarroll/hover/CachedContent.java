@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+/**
+ * Holds the {@link Content} of a lazy {@link HoverMenu.Section}: creates it with the
+ * {@link ContentFactory} when it's needed and lets it be released, and created again, later.
+ *
+ * A {@code CachedContent} is shared by all {@code Section}s that stand for the same content as a
+ * menu is rebuilt, so the content is only created once.
+ */
+class CachedContent {
+
+    private final ContentFactory mContentFactory;
+    private Content mContent;
+    private Bundle mSavedState;
+
+    CachedContent(@NonNull ContentFactory contentFactory) {
+        mContentFactory = contentFactory;
+    }
+
+    @NonNull
+    public ContentFactory getContentFactory() {
+        return mContentFactory;
+    }
+
+    public boolean isCreated() {
+        return null != mContent;
+    }
+
+    @NonNull
+    public Content getContent() {
+        if (null == mContent) {
+            mContent = mContentFactory.createContent();
+            if (null != mSavedState && mContent instanceof RestorableContent) {
+                ((RestorableContent) mContent).restoreState(mSavedState);
+            }
+            mSavedState = null;
+        }
+        return mContent;
+    }
+
+    /**
+     * Releases the content, after giving it the chance to save its state.  The next call to
+     * {@link #getContent()} creates the content again.
+     */
+    public void release() {
+        if (mContent instanceof RestorableContent) {
+            mSavedState = new Bundle();
+            ((RestorableContent) mContent).saveState(mSavedState);
+        }
+        mContent = null;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays a timeline of cues, e.g., the staggered appearance of each {@link FloatingTab} in a chain
+ * of tabs.  Each cue runs once the timeline reaches the cue's offset.
+ *
+ * The timeline is driven by the shared {@link SpringEngine} frame loop rather than by a delayed
+ * message per cue, so an entire timeline can be cancelled at once, and the
+ * {@link #getElapsedMillis() elapsed time} can be used to play a transition backwards from
+ * wherever it got to.
+ *
+ * A {@code ChainChoreographer} must only be used from the main thread.
+ */
+class ChainChoreographer {
+
+    private final List<Cue> mCues = new ArrayList<>();
+    private boolean mIsPlaying = false;
+    private float mElapsedMillis;
+    private Runnable mOnFinished;
+
+    private final SpringEngine.Animation mAnimation = new SpringEngine.Animation() {
+        @Override
+        public boolean onAnimationFrame(float elapsedSeconds) {
+            mElapsedMillis += elapsedSeconds * 1000;
+            runDueCues();
+            return mIsPlaying;
+        }
+    };
+
+    /**
+     * Adds a cue to the timeline.  Cues can only be added while the timeline isn't playing.
+     * @param offsetInMillis time from the start of the timeline at which to run {@code cue}
+     * @param cue the cue
+     */
+    public void addCue(int offsetInMillis, @NonNull Runnable cue) {
+        if (mIsPlaying) {
+            throw new IllegalStateException("Cannot add cues while playing.");
+        }
+        mCues.add(new Cue(offsetInMillis, cue));
+    }
+
+    /**
+     * Plays the timeline from the beginning.  Cues with an offset of 0 run before this method
+     * returns.  Once every cue has run the timeline is cleared and {@code onFinished} is invoked.
+     */
+    public void play(@Nullable Runnable onFinished) {
+        if (mIsPlaying) {
+            throw new IllegalStateException("Already playing.");
+        }
+
+        mIsPlaying = true;
+        mElapsedMillis = 0;
+        mOnFinished = onFinished;
+        runDueCues();
+        if (mIsPlaying) {
+            SpringEngine.getInstance().start(mAnimation);
+        }
+    }
+
+    /**
+     * Stops playing and clears the timeline.  Cues that haven't run yet never run, and the
+     * {@code onFinished} callback is dropped.
+     */
+    public void cancel() {
+        SpringEngine.getInstance().stop(mAnimation);
+        mIsPlaying = false;
+        mOnFinished = null;
+        mCues.clear();
+    }
+
+    public boolean isPlaying() {
+        return mIsPlaying;
+    }
+
+    /**
+     * @return time since the timeline started playing, or 0 if it isn't playing
+     */
+    public int getElapsedMillis() {
+        return mIsPlaying ? (int) mElapsedMillis : 0;
+    }
+
+    private void runDueCues() {
+        boolean hasPendingCues = false;
+        for (int i = 0; i < mCues.size(); ++i) {
+            Cue cue = mCues.get(i);
+            if (!cue.mHasRun && cue.mOffsetInMillis <= mElapsedMillis) {
+                cue.mHasRun = true;
+                cue.mCue.run();
+                if (!mIsPlaying) {
+                    // The cue cancelled the timeline.
+                    return;
+                }
+            }
+            hasPendingCues |= !cue.mHasRun;
+        }
+
+        if (!hasPendingCues) {
+            Runnable onFinished = mOnFinished;
+            mIsPlaying = false;
+            mOnFinished = null;
+            mCues.clear();
+            if (null != onFinished) {
+                onFinished.run();
+            }
+        }
+    }
+
+    private static final class Cue {
+        private final int mOffsetInMillis;
+        private final Runnable mCue;
+        private boolean mHasRun = false;
+
+        private Cue(int offsetInMillis, @NonNull Runnable cue) {
+            mOffsetInMillis = offsetInMillis;
+            mCue = cue;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link Content} of recently shown lazy {@link HoverMenu.Section}s and releases the
+ * least recently used ones, while they're hidden, when there are more than allowed or when memory
+ * is low.  {@code Section}s created with a {@link Content} instance are never released because
+ * their {@code Content} can't be created again.
+ */
+class ContentCache {
+
+    private static final String TAG = "ContentCache";
+    static final int DEFAULT_MAX_CACHED_CONTENT_COUNT = 4;
+
+    private final ContentDisplay mContentDisplay;
+    // Ordered from least to most recently used.
+    private final Map<CachedContent, Boolean> mCachedContent = new LinkedHashMap<>(16, 0.75f, true);
+    private int mMaxCachedContentCount = DEFAULT_MAX_CACHED_CONTENT_COUNT;
+
+    ContentCache(@NonNull ContentDisplay contentDisplay) {
+        mContentDisplay = contentDisplay;
+    }
+
+    /**
+     * Records that the given {@code section}'s content was just shown or prepared to be shown.
+     */
+    public void onContentUsed(@NonNull HoverMenu.Section section) {
+        CachedContent cachedContent = section.getCachedContent();
+        if (null != cachedContent) {
+            mCachedContent.put(cachedContent, Boolean.TRUE);
+            trimTo(mMaxCachedContentCount);
+        }
+    }
+
+    /**
+     * Sets the maximum number of lazily created {@code Content}s to keep, including any that are
+     * displayed.  Hidden {@code Content} beyond the new maximum is released.
+     */
+    public void setMaxCachedContentCount(int maxCachedContentCount) {
+        mMaxCachedContentCount = maxCachedContentCount;
+        trimTo(mMaxCachedContentCount);
+    }
+
+    public int getMaxCachedContentCount() {
+        return mMaxCachedContentCount;
+    }
+
+    /**
+     * Releases all hidden {@code Content}, e.g., when memory is low.
+     */
+    public void releaseHiddenContent() {
+        trimTo(0);
+    }
+
+    private void trimTo(int maxCachedContentCount) {
+        int releasableCount = mCachedContent.size() - maxCachedContentCount;
+        Iterator<CachedContent> iterator = mCachedContent.keySet().iterator();
+        while (releasableCount > 0 && iterator.hasNext()) {
+            CachedContent cachedContent = iterator.next();
+            if (!cachedContent.isCreated()) {
+                iterator.remove();
+                --releasableCount;
+            } else if (!mContentDisplay.isUsing(cachedContent.getContent())) {
+                Log.d(TAG, "Releasing hidden content.");
+                cachedContent.release();
+                iterator.remove();
+                --releasableCount;
+            }
+        }
+    }
+}
@@ -19,6 +19,10 @@ import android.content.Context;
 import android.graphics.Color;
 import android.graphics.Point;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
@@ -30,6 +34,9 @@ import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 import android.widget.RelativeLayout;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Rectangular area that displays {@link Content}.  A {@code ContentDisplay} also renders a caret
  * that points at a tab.
@@ -38,13 +45,26 @@ class ContentDisplay extends RelativeLayout {
 
     private static final String TAG = "ContentDisplay";
 
+    // Shared by all ContentDisplays.  Started the first time AsyncContent needs to be inflated.
+    private static Handler sInflationHandler;
+
     private View mContainer;
     private FrameLayout mContentView;
     private Drawable mContentBackground;
     private TabSelectorView mTabSelectorView;
     private FloatingTab mSelectedTab;
     private Content mContent;
+    private Content mPreparedContent;
+    // False while mContent is still inflating and only its placeholder, if any, is displayed.
+    private boolean mIsContentAttached = false;
+    private View mPlaceholderView;
+    private final Set<AsyncContent> mInflatingContent = new HashSet<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
     private boolean mIsVisible = false;
+    // Y position of the selected tab that our layout is based on.  While the tab is somewhere else
+    // we're offset with a translation instead of laid out again.
+    private int mRestingTabY = Integer.MIN_VALUE;
+    private boolean mHasAnimationLayer = false;
 
     private final ViewTreeObserver.OnGlobalLayoutListener mMyVisibilityWatcher = new ViewTreeObserver.OnGlobalLayoutListener() {
         @Override
@@ -63,10 +83,9 @@ class ContentDisplay extends RelativeLayout {
     private final FloatingTab.OnPositionChangeListener mOnTabPositionChangeListener = new FloatingTab.OnPositionChangeListener() {
         @Override
         public void onPositionChange(@NonNull Point position) {
-            Log.d(TAG, mSelectedTab + " tab moved to " + position);
-            updateTabSelectorPosition();
-
-            setPadding(0, position.y + (mSelectedTab.getTabSize() / 2), 0, 0);
+            // This is called on every frame while the selected tab animates. Follow the tab
+            // without requesting a layout pass, and don't log or allocate.
+            followTab(position.x, position.y);
 
             // We have received an affirmative position for the selected tab. Show tab selector.
             mTabSelectorView.setVisibility(VISIBLE);
@@ -74,7 +93,9 @@ class ContentDisplay extends RelativeLayout {
 
         @Override
         public void onDockChange(@NonNull Point dock) {
-            // No-op.
+            setRestingTabY(dock.y);
+            Point position = mSelectedTab.getPosition();
+            followTab(position.x, position.y);
         }
     };
 
@@ -110,6 +131,17 @@ class ContentDisplay extends RelativeLayout {
         setLayoutParams(layoutParams);
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // We may be removed part-way through a tab animation. Don't keep the layer until we're
+        // back.
+        if (mHasAnimationLayer) {
+            mHasAnimationLayer = false;
+            HardwareLayerPolicy.getInstance().onAnimationEnd(mContainer);
+        }
+    }
+
     public void enableDebugMode(boolean debugMode) {
         if (debugMode) {
             setBackgroundColor(0x88FFFF00);
@@ -119,6 +151,8 @@ class ContentDisplay extends RelativeLayout {
     }
 
     public void selectedTabIs(@Nullable FloatingTab tab) {
+        boolean isSwitchingTabs = null != mSelectedTab && null != tab && tab != mSelectedTab;
+
         // Disconnect from old selected tab.
         if (null != mSelectedTab) {
             mSelectedTab.removeOnPositionChangeListener(mOnTabPositionChangeListener);
@@ -128,17 +162,45 @@ class ContentDisplay extends RelativeLayout {
 
         // Connect to new selected tab.
         if (null != mSelectedTab) {
-            updateTabSelectorPosition();
+            Point tabPosition = mSelectedTab.getPosition();
+            setRestingTabY(mSelectedTab.hasDock() ? mSelectedTab.getDockPosition().y : tabPosition.y);
+            if (isSwitchingTabs && VISIBLE == mTabSelectorView.getVisibility()) {
+                // Glide over to the new tab rather than jump.
+                mTabSelectorView.slideSelectorTo(tabPosition.x);
+            }
+            followTab(tabPosition.x, tabPosition.y);
             mSelectedTab.addOnPositionChangeListener(mOnTabPositionChangeListener);
         } else {
             mTabSelectorView.setVisibility(INVISIBLE);
         }
     }
 
-    private void updateTabSelectorPosition() {
-        Point tabPosition = mSelectedTab.getPosition();
-        Log.d(TAG, "Updating tab position to " + tabPosition.x);
-        mTabSelectorView.setSelectorPosition(tabPosition.x);
+    // Lays us out below the given tab position.  This is the only place we request a layout pass
+    // on behalf of the selected tab, so only call it when the tab's resting position changes.
+    private void setRestingTabY(int tabY) {
+        if (tabY != mRestingTabY) {
+            mRestingTabY = tabY;
+            setPadding(0, tabY + (mSelectedTab.getTabSize() / 2), 0, 0);
+        }
+    }
+
+    // Moves the tab selector and content to the selected tab's current position, relative to the
+    // laid out resting position, without a layout pass.
+    private void followTab(int tabX, int tabY) {
+        mTabSelectorView.setSelectorPosition(tabX);
+        mContainer.setTranslationY(tabY - mRestingTabY);
+
+        // The content only moves away from its resting position while the tab animates. Keep it
+        // in a hardware layer for that time.
+        boolean isDisplaced = tabY != mRestingTabY;
+        if (isDisplaced != mHasAnimationLayer) {
+            mHasAnimationLayer = isDisplaced;
+            if (isDisplaced) {
+                HardwareLayerPolicy.getInstance().onAnimationStart(mContainer);
+            } else {
+                HardwareLayerPolicy.getInstance().onAnimationEnd(mContainer);
+            }
+        }
     }
 
     public void displayContent(@Nullable Content content) {
@@ -147,21 +209,189 @@ class ContentDisplay extends RelativeLayout {
             return;
         }
 
-        if (null != mContent) {
+        if (mIsContentAttached && null != content && !needsInflation(content)
+                && mContent.getView() == content.getView()) {
+            // The new Content reuses the displayed View. Hand the View over instead of tearing it
+            // down and adding it back.
+            boolean isLayoutChanged = mContent.isFullscreen() != content.isFullscreen();
+            mContent.onHidden();
+            mContent = content;
+            if (isLayoutChanged) {
+                applyContentLayout(mContent);
+            }
+            mContent.onShown();
+            return;
+        }
+
+        if (mIsContentAttached) {
             mContentView.removeView(mContent.getView());
             mContent.onHidden();
+            mIsContentAttached = false;
+        }
+        removePlaceholder();
+        if (content != mPreparedContent) {
+            discardPreparedContent();
         }
 
         mContent = content;
         if (null != mContent) {
-            mContentView.addView(mContent.getView());
-            mContent.onShown();
+            if (needsInflation(mContent)) {
+                // Don't block the caller, e.g., a tab selection, on inflation.  Show the
+                // placeholder now and the content when it's ready.
+                showPlaceholder((AsyncContent) mContent);
+                inflateInBackground((AsyncContent) mContent);
+                return;
+            }
 
-            if (content.isFullscreen()) {
-                expandToScreenBounds();
-            } else {
-                wrapContent();
+            attachContent(mContent);
+        }
+    }
+
+    private void attachContent(@NonNull Content content) {
+        if (content != mPreparedContent) {
+            mContentView.addView(content.getView());
+            applyContentLayout(content);
+        }
+        mPreparedContent = null;
+        mIsContentAttached = true;
+        content.onShown();
+    }
+
+    private static boolean needsInflation(@NonNull Content content) {
+        return content instanceof AsyncContent && !((AsyncContent) content).isInflated();
+    }
+
+    private void inflateInBackground(@NonNull final AsyncContent content) {
+        if (!mInflatingContent.add(content)) {
+            // Already on its way.
+            return;
+        }
+
+        Log.d(TAG, "Inflating content in the background.");
+        getInflationHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                content.inflate();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onContentInflated(content);
+                    }
+                });
             }
+        });
+    }
+
+    private void onContentInflated(@NonNull AsyncContent content) {
+        mInflatingContent.remove(content);
+        if (content == mContent && !mIsContentAttached) {
+            Log.d(TAG, "Content inflated. Swapping it in.");
+            removePlaceholder();
+            attachContent(content);
+        }
+    }
+
+    private void showPlaceholder(@NonNull AsyncContent content) {
+        mPlaceholderView = content.getPlaceholderView();
+        if (null != mPlaceholderView) {
+            mContentView.addView(mPlaceholderView);
+            applyContentLayout(content);
+        }
+    }
+
+    private void removePlaceholder() {
+        if (null != mPlaceholderView) {
+            mContentView.removeView(mPlaceholderView);
+            mPlaceholderView = null;
+        }
+    }
+
+    @NonNull
+    private static synchronized Handler getInflationHandler() {
+        if (null == sInflationHandler) {
+            HandlerThread inflationThread = new HandlerThread("HoverContentInflater", Process.THREAD_PRIORITY_BACKGROUND);
+            inflationThread.start();
+            sInflationHandler = new Handler(inflationThread.getLooper());
+        }
+        return sInflationHandler;
+    }
+
+    /**
+     * Adds the given {@code content} to this {@code ContentDisplay}, while this
+     * {@code ContentDisplay} is hidden, and measures and lays it out at the given size.  A later
+     * call to {@link #displayContent(Content)} with the same {@code content} only has to show it.
+     */
+    public void prepareContent(@NonNull Content content, int width, int height) {
+        if (null != mContent || content == mPreparedContent) {
+            return;
+        }
+
+        if (needsInflation(content)) {
+            // Get a head start on inflation.  The content is laid out once it's displayed.
+            inflateInBackground((AsyncContent) content);
+            return;
+        }
+
+        Log.d(TAG, "Preparing content ahead of display.");
+        discardPreparedContent();
+        mPreparedContent = content;
+        mContentView.addView(mPreparedContent.getView());
+        applyContentLayout(mPreparedContent);
+        measure(
+                MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY)
+        );
+        layout(0, 0, width, height);
+    }
+
+    /**
+     * Builds, measures, and lays out the given {@code content} off-screen, at the size of the
+     * content area, so that a later call to {@link #displayContent(Content)} only has to attach
+     * it.  {@link AsyncContent} is inflated in the background instead.
+     */
+    public void prefetchContent(@NonNull Content content) {
+        if (content == mContent || content == mPreparedContent) {
+            return;
+        }
+
+        if (needsInflation(content)) {
+            inflateInBackground((AsyncContent) content);
+            return;
+        }
+
+        View view = content.getView();
+        if (null != view.getParent() || 0 == mContentView.getWidth()) {
+            // Either it's in use or we don't know our size yet.
+            return;
+        }
+
+        view.measure(
+                MeasureSpec.makeMeasureSpec(mContentView.getWidth(), MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(
+                        mContentView.getHeight(),
+                        content.isFullscreen() ? MeasureSpec.EXACTLY : MeasureSpec.AT_MOST
+                )
+        );
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    // True if the given content is displayed or prepared for display.
+    boolean isUsing(@NonNull Content content) {
+        return content == mContent || content == mPreparedContent;
+    }
+
+    public void discardPreparedContent() {
+        if (null != mPreparedContent) {
+            mContentView.removeView(mPreparedContent.getView());
+            mPreparedContent = null;
+        }
+    }
+
+    private void applyContentLayout(@NonNull Content content) {
+        if (content.isFullscreen()) {
+            expandToScreenBounds();
+        } else {
+            wrapContent();
         }
     }
 
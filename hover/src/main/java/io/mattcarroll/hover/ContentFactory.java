@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Creates the {@link Content} of a {@link HoverMenu.Section} when it's first needed, rather than
+ * when the {@code Section} is created.  Use this for heavy {@code Content} that the user may never
+ * open.
+ *
+ * {@code ContentFactory}s are compared with {@link Object#equals(Object)} to decide whether a
+ * {@code Section}'s {@code Content} changed, so reuse the same factory for the same content.
+ */
+public interface ContentFactory {
+
+    /**
+     * Creates the {@code Content}.  Called on the main thread when the {@code Content} is first
+     * needed, and again whenever it's needed after it was released, e.g., under memory pressure.
+     * Don't assume this method is called only once.  See {@link RestorableContent} to carry
+     * state over from the released {@code Content}.
+     *
+     * @return the content
+     */
+    @NonNull
+    Content createContent();
+
+}
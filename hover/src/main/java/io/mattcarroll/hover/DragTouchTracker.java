@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Translates a stream of raw touch positions into {@link Dragger.DragListener} callbacks. A
+ * {@code DragTouchTracker} decides when a press turns into a drag, based on a tap touch slop, and
+ * tracks where the dragged View's center should be as the touch moves.
+ *
+ * A {@code DragTouchTracker} is shared by {@link Dragger} implementations so that they all report
+ * drag behavior the same way.  All state is held in primitive fields so that tracking a drag does
+ * not allocate any objects, which keeps the garbage collector quiet while the user drags.
+ */
+public class DragTouchTracker {
+
+    private final float mTapTouchSlopSquared;
+    private Dragger.DragListener mDragListener;
+    private TouchPredictor mTouchPredictor;
+    private boolean mIsDragging;
+
+    private float mOriginalViewX;
+    private float mOriginalViewY;
+    private float mOriginalTouchX;
+    private float mOriginalTouchY;
+    private float mCurrentViewX;
+    private float mCurrentViewY;
+
+    public DragTouchTracker(float tapTouchSlop) {
+        mTapTouchSlopSquared = tapTouchSlop * tapTouchSlop;
+    }
+
+    public void setDragListener(@Nullable Dragger.DragListener dragListener) {
+        mDragListener = dragListener;
+    }
+
+    /**
+     * Sets a {@link TouchPredictor} whose predictions are reported to
+     * {@link Dragger.DragListener#onDragTo(float, float)} instead of the latest touch position.  The
+     * owner of this {@code DragTouchTracker} is responsible for feeding the predictor with touch
+     * samples.  Tap detection and the final release position always use actual touch positions.
+     * @param touchPredictor predictor to use, or null to report actual touch positions
+     */
+    public void setTouchPredictor(@Nullable TouchPredictor touchPredictor) {
+        mTouchPredictor = touchPredictor;
+    }
+
+    /**
+     * The user pressed down.
+     * @param viewCenterX x-coordinate of the dragged View's center when the press began
+     * @param viewCenterY y-coordinate of the dragged View's center when the press began
+     * @param touchX raw x-coordinate of the press
+     * @param touchY raw y-coordinate of the press
+     */
+    public void onTouchDown(float viewCenterX, float viewCenterY, float touchX, float touchY) {
+        mIsDragging = false;
+        mOriginalViewX = viewCenterX;
+        mOriginalViewY = viewCenterY;
+        mCurrentViewX = viewCenterX;
+        mCurrentViewY = viewCenterY;
+        mOriginalTouchX = touchX;
+        mOriginalTouchY = touchY;
+
+        mDragListener.onPress(mCurrentViewX, mCurrentViewY);
+    }
+
+    /**
+     * The user moved their touch.
+     * @param touchX raw x-coordinate of the touch
+     * @param touchY raw y-coordinate of the touch
+     * @return true if the dragged View should be moved to ({@link #getCurrentX()},
+     * {@link #getCurrentY()}), false otherwise
+     */
+    public boolean onTouchMove(float touchX, float touchY) {
+        float dragDeltaX = touchX - mOriginalTouchX;
+        float dragDeltaY = touchY - mOriginalTouchY;
+        mCurrentViewX = mOriginalViewX + dragDeltaX;
+        mCurrentViewY = mOriginalViewY + dragDeltaY;
+
+        if (mIsDragging) {
+            if (null != mTouchPredictor) {
+                mDragListener.onDragTo(
+                        mOriginalViewX + (mTouchPredictor.getPredictedX() - mOriginalTouchX),
+                        mOriginalViewY + (mTouchPredictor.getPredictedY() - mOriginalTouchY)
+                );
+            } else {
+                mDragListener.onDragTo(mCurrentViewX, mCurrentViewY);
+            }
+            return true;
+        } else if (!isWithinTapTouchSlop(dragDeltaX, dragDeltaY)) {
+            // Dragging just started.
+            mIsDragging = true;
+            mDragListener.onDragStart(mCurrentViewX, mCurrentViewY);
+        }
+        return false;
+    }
+
+    /**
+     * The user lifted their touch.  Reports a tap or a release depending on whether the user
+     * dragged.
+     * @param velocityX horizontal velocity of the touch when it was lifted, in pixels per second
+     * @param velocityY vertical velocity of the touch when it was lifted, in pixels per second
+     */
+    public void onTouchUp(float velocityX, float velocityY) {
+        if (!mIsDragging) {
+            mDragListener.onTap();
+        } else {
+            mDragListener.onReleasedAt(mCurrentViewX, mCurrentViewY, velocityX, velocityY);
+        }
+    }
+
+    public boolean isDragging() {
+        return mIsDragging;
+    }
+
+    public float getCurrentX() {
+        return mCurrentViewX;
+    }
+
+    public float getCurrentY() {
+        return mCurrentViewY;
+    }
+
+    private boolean isWithinTapTouchSlop(float dx, float dy) {
+        return (dx * dx) + (dy * dy) < mTapTouchSlopSquared;
+    }
+}
@@ -17,6 +17,7 @@ package io.mattcarroll.hover;
 
 import android.graphics.Point;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 /**
  * Reports user drag behavior on the screen to a {@link DragListener}.
@@ -35,6 +36,12 @@ public interface Dragger {
      */
     void deactivate();
 
+    /**
+     * Stops monitoring user drag behavior and releases any resources that this {@code Dragger}
+     * keeps around between activations.  This {@code Dragger} can still be activated again later.
+     */
+    void release();
+
     /**
      * Enable/Disable debug mode.  In debug mode this Dragger will paint its touch area with a
      * translucent color.
@@ -42,6 +49,14 @@ public interface Dragger {
      */
     void enableDebugMode(boolean debugMode);
 
+    /**
+     * Sets a {@link TouchPredictor} that extrapolates where the user's touch is about to be so that
+     * {@link DragListener#onDragTo(float, float)} can report positions that don't lag behind the
+     * user's finger.
+     * @param touchPredictor predictor to use, or null to report actual touch positions
+     */
+    void setTouchPredictor(@Nullable TouchPredictor touchPredictor);
+
     interface DragListener {
 
         /**
@@ -69,8 +84,10 @@ public interface Dragger {
          * The user has stopped touching the drag area.
          * @param x x-coordinate of the user's release (in the parent View's coordinate space)
          * @param y y-coordiante of the user's release (in the parent View's coordinate space)
+         * @param velocityX horizontal velocity of the user's touch when released, in pixels per second
+         * @param velocityY vertical velocity of the user's touch when released, in pixels per second
          */
-        void onReleasedAt(float x, float y);
+        void onReleasedAt(float x, float y, float velocityX, float velocityY);
 
         /**
          * The user tapped the drag area (instead of dragging it).
@@ -15,11 +15,9 @@
  */
 package io.mattcarroll.hover;
 
-import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Point;
 import android.support.annotation.NonNull;
@@ -27,11 +25,9 @@ import android.support.annotation.Nullable;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.OvershootInterpolator;
 import android.widget.FrameLayout;
 
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.Arrays;
 
 /**
  * {@code FloatingTab} is the cornerstone of a {@link HoverView}.  When a {@code HoverView} is
@@ -44,16 +40,61 @@ import java.util.concurrent.CopyOnWriteArraySet;
  * position itself at an arbitrary location on screen.
  *
  * {@code FloatingTab}s position themselves based on their center.
+ *
+ * A {@code FloatingTab} can draw a snapshot of its tab {@code View} instead of the live
+ * {@code View} while it's dragged, docked or scaled, so that a tab {@code View} that redraws itself
+ * doesn't cost a full redraw on every frame of motion.  See {@link #enableSnapshots(boolean)}.
  */
 class FloatingTab extends FrameLayout {
 
     private static final String TAG = "FloatingTab";
 
-    private final String mId;
+    // The position springs are slightly under-damped so that a tab overshoots its dock a little
+    // before settling, much like an OvershootInterpolator. A tab comes to rest in its dock in about
+    // 300ms, less when it's flung towards its dock.
+    private static final float POSITION_SPRING_STIFFNESS = 800f; // 1/s^2
+    private static final float POSITION_SPRING_DAMPING_RATIO = 0.75f;
+    private static final float POSITION_REST_DISTANCE = 1f; // px
+    private static final float POSITION_REST_VELOCITY = 20f; // px per second
+
+    // The scale spring doesn't overshoot so that a disappearing tab never turns inside out.
+    private static final float SCALE_SPRING_STIFFNESS = 1000f; // 1/s^2
+    private static final float SCALE_SPRING_DAMPING_RATIO = 1f;
+    private static final float SCALE_REST_DISTANCE = 0.005f;
+    private static final float SCALE_REST_VELOCITY = 0.1f; // per second
+
+    private String mId;
     private int mTabSize;
     private View mTabView;
     private Dock mDock;
-    private final Set<OnPositionChangeListener> mOnPositionChangeListeners = new CopyOnWriteArraySet<>();
+    // Copied on write so that listeners can be notified every frame without allocating an iterator.
+    private OnPositionChangeListener[] mOnPositionChangeListeners = new OnPositionChangeListener[0];
+    private final Point mNotifiedPosition = new Point();
+
+    private final Spring mXSpring = new Spring(POSITION_SPRING_STIFFNESS, POSITION_SPRING_DAMPING_RATIO, POSITION_REST_DISTANCE, POSITION_REST_VELOCITY);
+    private final Spring mYSpring = new Spring(POSITION_SPRING_STIFFNESS, POSITION_SPRING_DAMPING_RATIO, POSITION_REST_DISTANCE, POSITION_REST_VELOCITY);
+    private final Spring mScaleSpring = new Spring(SCALE_SPRING_STIFFNESS, SCALE_SPRING_DAMPING_RATIO, SCALE_REST_DISTANCE, SCALE_REST_VELOCITY);
+    private boolean mIsDocking = false;
+    private boolean mIsScaling = false;
+    private boolean mHasAnimationLayer = false;
+    private boolean mIsDragging = false;
+    private boolean mIsMoving = false;
+
+    // Snapshot of mTabView that's drawn in its place while this tab is moving. Taken on the first
+    // draw after this tab starts moving, or after the tab view changes while moving.
+    private boolean mIsSnapshotEnabled = false;
+    private Bitmap mSnapshot;
+    private final Canvas mSnapshotCanvas = new Canvas();
+    private boolean mIsSnapshotValid = false;
+    private Runnable mOnDocked;
+    private Runnable mOnScaled;
+
+    private final SpringEngine.Animation mSpringAnimation = new SpringEngine.Animation() {
+        @Override
+        public boolean onAnimationFrame(float elapsedSeconds) {
+            return stepSprings(elapsedSeconds);
+        }
+    };
 
     private final OnLayoutChangeListener mOnLayoutChangeListener = new OnLayoutChangeListener() {
         @Override
@@ -88,6 +129,10 @@ class FloatingTab extends FrameLayout {
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         removeOnLayoutChangeListener(mOnLayoutChangeListener);
+        mIsDragging = false;
+        cancelDocking();
+        cancelScaling();
+        releaseSnapshot();
     }
 
     public void enableDebugMode(boolean debugMode) {
@@ -98,75 +143,77 @@ class FloatingTab extends FrameLayout {
         }
     }
 
-    public void appear(@Nullable final Runnable onAppeared) {
-        AnimatorSet animatorSet = new AnimatorSet();
-        ObjectAnimator scaleX = ObjectAnimator.ofFloat(this, "scaleX", 0.0f, 1.0f);
-        scaleX.setDuration(250);
-        ObjectAnimator scaleY = ObjectAnimator.ofFloat(this, "scaleY", 0.0f, 1.0f);
-        scaleY.setDuration(250);
-        animatorSet.playTogether(scaleX, scaleY);
-        animatorSet.start();
-
-        animatorSet.addListener(new Animator.AnimatorListener() {
-            @Override
-            public void onAnimationStart(Animator animation) {
-            }
-
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                if (null != onAppeared) {
-                    onAppeared.run();
-                }
-            }
-
-            @Override
-            public void onAnimationCancel(Animator animation) {
-            }
+    /**
+     * Enables or disables drawing a snapshot of the tab {@code View} while this tab moves.  The
+     * live tab {@code View} is drawn again as soon as this tab comes to rest.
+     */
+    public void enableSnapshots(boolean isEnabled) {
+        if (isEnabled == mIsSnapshotEnabled) {
+            return;
+        }
+        mIsSnapshotEnabled = isEnabled;
+        if (!isEnabled) {
+            releaseSnapshot();
+            invalidate();
+        }
+    }
 
-            @Override
-            public void onAnimationRepeat(Animator animation) {
-            }
-        });
+    /**
+     * Tells this tab whether the user is dragging it.
+     */
+    public void setDragging(boolean isDragging) {
+        mIsDragging = isDragging;
+        updateMotionState();
+    }
 
+    public void appear(@Nullable Runnable onAppeared) {
+        if (!mIsScaling) {
+            mScaleSpring.setValue(0.0f);
+        }
         setVisibility(VISIBLE);
+        scaleTo(1.0f, onAppeared);
     }
 
     public void appearImmediate() {
+        cancelScaling();
+        setScale(1.0f);
         setVisibility(VISIBLE);
     }
 
-    public void disappear(@Nullable final Runnable onDisappeared) {
-        AnimatorSet animatorSet = new AnimatorSet();
-        ObjectAnimator scaleX = ObjectAnimator.ofFloat(this, "scaleX", 0.0f);
-        scaleX.setDuration(250);
-        ObjectAnimator scaleY = ObjectAnimator.ofFloat(this, "scaleY", 0.0f);
-        scaleY.setDuration(250);
-        animatorSet.playTogether(scaleX, scaleY);
-        animatorSet.start();
-
-        animatorSet.addListener(new Animator.AnimatorListener() {
-            @Override
-            public void onAnimationStart(Animator animation) { }
-
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                setVisibility(GONE);
+    public void disappear(@Nullable Runnable onDisappeared) {
+        if (!mIsScaling) {
+            mScaleSpring.setValue(getScaleX());
+        }
+        scaleTo(0.0f, onDisappeared);
+    }
 
-                if (null != onDisappeared) {
-                    onDisappeared.run();
-                }
-            }
+    public void disappearImmediate() {
+        cancelScaling();
+        setVisibility(GONE);
+    }
 
-            @Override
-            public void onAnimationCancel(Animator animation) { }
+    // Animates this tab's scale to the given value. If this tab is already scaling then the
+    // animation is retargeted and the previous completion callback still runs, before the new one,
+    // when this tab comes to rest.  Only cancelScaling() drops a completion callback.
+    private void scaleTo(float scale, @Nullable Runnable onScaled) {
+        mScaleSpring.setTarget(scale);
+        mOnScaled = chain(mOnScaled, onScaled);
+        mIsScaling = true;
+        SpringEngine.getInstance().start(mSpringAnimation);
+        updateMotionState();
+    }
 
-            @Override
-            public void onAnimationRepeat(Animator animation) { }
-        });
+    private void cancelScaling() {
+        if (mIsScaling) {
+            mIsScaling = false;
+            mOnScaled = null;
+            stopSpringAnimationIfIdle();
+        }
     }
 
-    public void disappearImmediate() {
-        setVisibility(GONE);
+    private void setScale(float scale) {
+        setScaleX(scale);
+        setScaleY(scale);
     }
 
     @NonNull
@@ -174,13 +221,46 @@ class FloatingTab extends FrameLayout {
         return mId;
     }
 
+    /**
+     * Returns this tab to the state of a newly constructed tab, with the given ID, so that it can
+     * be reused instead of constructing a new tab.
+     */
+    void reset(@NonNull String tabId) {
+        mId = tabId;
+        mIsDragging = false;
+        cancelDocking();
+        cancelScaling();
+        setTabView(null);
+        setOnClickListener(null);
+        mOnPositionChangeListeners = new OnPositionChangeListener[0];
+        mDock = null;
+        setScale(1.0f);
+        setX(0);
+        setY(0);
+        setVisibility(VISIBLE);
+    }
+
     public int getTabSize() {
         return mTabSize;
     }
 
+    @Nullable
+    public View getTabView() {
+        return mTabView;
+    }
+
     public void setTabView(@Nullable View view) {
+        // Even the same View may look different by now, e.g., when the menu reports that a
+        // section's tab view changed but kept the same View.
+        invalidateSnapshot();
+        if (null == view) {
+            // There's nothing left to snapshot. Don't hold on to the bitmap while this tab is
+            // pooled or being reset for another section.
+            releaseSnapshot();
+        }
+
         if (view == mTabView) {
-            // If Tab View hasn't changed, no need to do anything.
+            // If Tab View hasn't changed, no need to do anything else.
             return;
         }
 
@@ -210,8 +290,16 @@ class FloatingTab extends FrameLayout {
         return mDock.position();
     }
 
+    public boolean hasDock() {
+        return null != mDock;
+    }
+
     public void setDock(@NonNull Dock dock) {
         mDock = dock;
+        if (mIsDocking) {
+            // Already on our way to a dock. Head for the new one instead without losing speed.
+            setDockTarget();
+        }
         notifyListenersOfDockChange();
     }
 
@@ -219,55 +307,227 @@ class FloatingTab extends FrameLayout {
         dock(null);
     }
 
-    public void dock(@Nullable final Runnable onDocked) {
-        Point destinationCornerPosition = convertCenterToCorner(mDock.position());
-        Log.d(TAG, "Docking to destination point: " + destinationCornerPosition);
-
-        ObjectAnimator xAnimation = ObjectAnimator.ofFloat(this, "x", destinationCornerPosition.x);
-        xAnimation.setDuration(500);
-        xAnimation.setInterpolator(new OvershootInterpolator());
-        ObjectAnimator yAnimation = ObjectAnimator.ofFloat(this, "y", destinationCornerPosition.y);
-        yAnimation.setDuration(500);
-        yAnimation.setInterpolator(new OvershootInterpolator());
-        AnimatorSet animatorSet = new AnimatorSet();
-        animatorSet.play(xAnimation).with(yAnimation);
-        animatorSet.start();
-
-        animatorSet.addListener(new Animator.AnimatorListener() {
-            @Override
-            public void onAnimationStart(Animator animation) { }
+    public boolean isDocking() {
+        return mIsDocking;
+    }
 
+    /**
+     * Moves this tab to its dock.  If this tab is already moving then it keeps its current velocity
+     * and heads for its dock from there.
+     *
+     * @param onDocked invoked once the tab comes to rest in its dock
+     */
+    public void dock(@Nullable Runnable onDocked) {
+        if (!mIsDocking) {
+            mXSpring.setValue(getX());
+            mYSpring.setValue(getY());
+        }
+        startDocking(onDocked);
+    }
+
+    /**
+     * Moves this tab to its dock, starting out with the given velocity.  The tab is pulled into its
+     * dock by a spring, so a tab that's flung towards its dock keeps its momentum and settles
+     * sooner than a tab that starts at rest.
+     *
+     * @param velocityX initial horizontal velocity, in pixels per second
+     * @param velocityY initial vertical velocity, in pixels per second
+     * @param onDocked invoked once the tab comes to rest in its dock
+     */
+    public void dock(float velocityX, float velocityY, @Nullable Runnable onDocked) {
+        mXSpring.setValue(getX());
+        mYSpring.setValue(getY());
+        mXSpring.setVelocity(velocityX);
+        mYSpring.setVelocity(velocityY);
+        startDocking(onDocked);
+    }
+
+    // If this tab is already docking then the previous completion callback still runs, before the
+    // new one, when this tab comes to rest.  Only cancelDocking() drops a completion callback.
+    private void startDocking(@Nullable Runnable onDocked) {
+        setDockTarget();
+        Log.d(TAG, "Docking to destination point: (" + mXSpring.getTarget() + ", " + mYSpring.getTarget() + ")");
+        mOnDocked = chain(mOnDocked, onDocked);
+        mIsDocking = true;
+        SpringEngine.getInstance().start(mSpringAnimation);
+        updateMotionState();
+    }
+
+    // Returns a Runnable that runs {@code first} and then {@code second}, either of which may be null.
+    // A callback that's given again is only run once.
+    @Nullable
+    private static Runnable chain(@Nullable final Runnable first, @Nullable final Runnable second) {
+        if (null == first) {
+            return second;
+        } else if (null == second || first == second) {
+            return first;
+        }
+        return new Runnable() {
             @Override
-            public void onAnimationEnd(Animator animation) {
-                if (null != onDocked) {
-                    onDocked.run();
-                }
-                notifyListenersOfPositionChange();
+            public void run() {
+                first.run();
+                second.run();
             }
+        };
+    }
 
-            @Override
-            public void onAnimationCancel(Animator animation) { }
+    private void setDockTarget() {
+        Point destinationCornerPosition = convertCenterToCorner(mDock.position());
+        mXSpring.setTarget(destinationCornerPosition.x);
+        mYSpring.setTarget(destinationCornerPosition.y);
+    }
 
-            @Override
-            public void onAnimationRepeat(Animator animation) { }
-        });
+    private void cancelDocking() {
+        if (mIsDocking) {
+            mIsDocking = false;
+            mOnDocked = null;
+            stopSpringAnimationIfIdle();
+        }
+    }
 
-        xAnimation.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                notifyListenersOfPositionChange();
+    private void stopSpringAnimationIfIdle() {
+        if (!mIsDocking && !mIsScaling) {
+            SpringEngine.getInstance().stop(mSpringAnimation);
+        }
+        updateMotionState();
+    }
+
+    // Called whenever this tab may have started or stopped docking, scaling or being dragged.
+    // Keeps this tab in a hardware layer exactly while it's docking or scaling, and draws the
+    // snapshot of the tab view while it's moving in any way.
+    private void updateMotionState() {
+        boolean isAnimating = mIsDocking || mIsScaling;
+        if (isAnimating != mHasAnimationLayer) {
+            mHasAnimationLayer = isAnimating;
+            if (isAnimating) {
+                HardwareLayerPolicy.getInstance().onAnimationStart(this);
+            } else {
+                HardwareLayerPolicy.getInstance().onAnimationEnd(this);
+            }
+        }
+
+        boolean isMoving = isAnimating || mIsDragging;
+        if (isMoving != mIsMoving) {
+            mIsMoving = isMoving;
+            // Each motion gets a fresh snapshot.
+            mIsSnapshotValid = false;
+            if (!isMoving && mIsSnapshotEnabled) {
+                // Show the live tab view again, including anything it drew while we moved.
+                invalidate();
+            }
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mIsSnapshotEnabled && mIsMoving && null != mTabView && takeSnapshotIfNeeded()) {
+            canvas.drawBitmap(mSnapshot, mTabView.getLeft(), mTabView.getTop(), null);
+        } else {
+            super.dispatchDraw(canvas);
+        }
+    }
+
+    // Returns false if there's nothing to take a snapshot of yet.
+    private boolean takeSnapshotIfNeeded() {
+        if (mIsSnapshotValid) {
+            return true;
+        }
+
+        int width = mTabView.getWidth();
+        int height = mTabView.getHeight();
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+
+        if (null == mSnapshot || mSnapshot.getWidth() != width || mSnapshot.getHeight() != height) {
+            releaseSnapshot();
+            mSnapshot = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mSnapshotCanvas.setBitmap(mSnapshot);
+        } else {
+            mSnapshot.eraseColor(Color.TRANSPARENT);
+        }
+        mTabView.draw(mSnapshotCanvas);
+        mIsSnapshotValid = true;
+        return true;
+    }
+
+    private void invalidateSnapshot() {
+        mIsSnapshotValid = false;
+        if (mIsSnapshotEnabled && mIsMoving) {
+            invalidate();
+        }
+    }
+
+    private void releaseSnapshot() {
+        mIsSnapshotValid = false;
+        if (null != mSnapshot) {
+            mSnapshotCanvas.setBitmap(null);
+            mSnapshot.recycle();
+            mSnapshot = null;
+        }
+    }
+
+    // Called by the SpringEngine once per frame while docking or scaling. Must not allocate.
+    private boolean stepSprings(float elapsedSeconds) {
+        Runnable onDocked = null;
+        Runnable onScaled = null;
+
+        boolean didMove = mIsDocking;
+        if (mIsDocking) {
+            boolean isXMoving = mXSpring.step(elapsedSeconds);
+            boolean isYMoving = mYSpring.step(elapsedSeconds);
+            setX(mXSpring.getValue());
+            setY(mYSpring.getValue());
+            if (!isXMoving && !isYMoving) {
+                mIsDocking = false;
+                onDocked = mOnDocked;
+                mOnDocked = null;
             }
-        });
+        }
+
+        if (mIsScaling) {
+            boolean isScaleMoving = mScaleSpring.step(elapsedSeconds);
+            setScale(mScaleSpring.getValue());
+            if (!isScaleMoving) {
+                mIsScaling = false;
+                onScaled = mOnScaled;
+                mOnScaled = null;
+                if (0.0f == mScaleSpring.getValue()) {
+                    setVisibility(GONE);
+                }
+            }
+        }
+
+        // Callbacks go last because they may start new animations on this tab.
+        if (null != onDocked) {
+            onDocked.run();
+        }
+        if (null != onScaled) {
+            onScaled.run();
+        }
+        if (didMove) {
+            notifyListenersOfPositionChange();
+        }
+        updateMotionState();
+
+        return mIsDocking || mIsScaling;
     }
 
     public void dockImmediately() {
+        cancelDocking();
         moveTo(mDock.position());
     }
 
     public void moveTo(@NonNull Point floatPosition) {
-        Point cornerPosition = convertCenterToCorner(floatPosition);
-        setX(cornerPosition.x);
-        setY(cornerPosition.y);
+        moveTo(floatPosition.x, floatPosition.y);
+    }
+
+    // Moves the center of this tab to the given position. Called for every drag sample so this
+    // must not allocate.
+    public void moveTo(float centerX, float centerY) {
+        cancelDocking();
+        setX(centerX - (getTabSize() / 2));
+        setY(centerY - (getTabSize() / 2));
     }
 
     private Point convertCenterToCorner(@NonNull Point centerPosition) {
@@ -278,17 +538,40 @@ class FloatingTab extends FrameLayout {
     }
 
     public void addOnPositionChangeListener(@Nullable OnPositionChangeListener listener) {
-        mOnPositionChangeListeners.add(listener);
+        if (indexOfOnPositionChangeListener(listener) < 0) {
+            OnPositionChangeListener[] listeners = Arrays.copyOf(mOnPositionChangeListeners, mOnPositionChangeListeners.length + 1);
+            listeners[listeners.length - 1] = listener;
+            mOnPositionChangeListeners = listeners;
+        }
     }
 
     public void removeOnPositionChangeListener(@NonNull OnPositionChangeListener listener) {
-        mOnPositionChangeListeners.remove(listener);
+        int index = indexOfOnPositionChangeListener(listener);
+        if (index >= 0) {
+            OnPositionChangeListener[] listeners = new OnPositionChangeListener[mOnPositionChangeListeners.length - 1];
+            System.arraycopy(mOnPositionChangeListeners, 0, listeners, 0, index);
+            System.arraycopy(mOnPositionChangeListeners, index + 1, listeners, index, listeners.length - index);
+            mOnPositionChangeListeners = listeners;
+        }
+    }
+
+    private int indexOfOnPositionChangeListener(@Nullable OnPositionChangeListener listener) {
+        for (int i = 0; i < mOnPositionChangeListeners.length; ++i) {
+            if (mOnPositionChangeListeners[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     private void notifyListenersOfPositionChange() {
-        Point position = getPosition();
-        for (OnPositionChangeListener listener : mOnPositionChangeListeners) {
-            listener.onPositionChange(position);
+        mNotifiedPosition.set(
+                (int) (getX() + (getTabSize() / 2)),
+                (int) (getY() + (getTabSize() / 2))
+        );
+        OnPositionChangeListener[] listeners = mOnPositionChangeListeners;
+        for (int i = 0; i < listeners.length; ++i) {
+            listeners[i].onPositionChange(mNotifiedPosition);
         }
     }
 
@@ -305,6 +588,10 @@ class FloatingTab extends FrameLayout {
     }
 
     public interface OnPositionChangeListener {
+        /**
+         * This tab's center moved to {@code tabPosition}. {@code tabPosition} is reused for every
+         * notification so don't hold on to it.
+         */
         void onPositionChange(@NonNull Point tabPosition);
 
         void onDockChange(@NonNull Point dockPosition);
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides which {@code View}s in a {@link HoverView} render into hardware layers.  Tabs, the shade,
+ * and the content are promoted to a hardware layer while they animate, so that each frame only
+ * re-composites the layer instead of re-recording the {@code View}'s display list, and are demoted
+ * as soon as they stop so that the layer's memory is given back.
+ *
+ * The policy applies to all {@code HoverView}s in the process.  Use {@link #setEnabled(boolean)} to
+ * turn it off, e.g., for tab Views that change every frame, where a layer would only add cost.
+ * Layer memory is estimated as 4 bytes per pixel of each promoted {@code View}.  A {@code View}
+ * that's detached from its window is demoted right away, so the policy never holds on to
+ * {@code View}s that are gone.
+ */
+public final class HardwareLayerPolicy {
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static HardwareLayerPolicy sInstance;
+
+    @NonNull
+    public static synchronized HardwareLayerPolicy getInstance() {
+        if (null == sInstance) {
+            sInstance = new HardwareLayerPolicy();
+        }
+        return sInstance;
+    }
+
+    private boolean mIsEnabled = true;
+    // Views we put in a hardware layer, and how many animations each is in.
+    private final Map<View, Layer> mLayers = new HashMap<>();
+    private long mLayerMemoryInBytes = 0;
+    private long mPeakLayerMemoryInBytes = 0;
+    private int mPromotionCount = 0;
+
+    private HardwareLayerPolicy() { }
+
+    /**
+     * Enables or disables promoting animating {@code View}s to hardware layers.  Disabling demotes
+     * every {@code View} that's currently promoted.
+     */
+    public void setEnabled(boolean isEnabled) {
+        mIsEnabled = isEnabled;
+        if (!isEnabled) {
+            for (View view : new ArrayList<>(mLayers.keySet())) {
+                removeLayer(view);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return mIsEnabled;
+    }
+
+    /**
+     * Returns the number of {@code View}s that are currently rendered into a hardware layer by this
+     * policy.
+     */
+    public int getActiveLayerCount() {
+        return mLayers.size();
+    }
+
+    /**
+     * Returns the estimated memory, in bytes, of the hardware layers currently held by this policy.
+     */
+    public long getActiveLayerMemoryInBytes() {
+        return mLayerMemoryInBytes;
+    }
+
+    /**
+     * Returns the largest value {@link #getActiveLayerMemoryInBytes()} has had.
+     */
+    public long getPeakLayerMemoryInBytes() {
+        return mPeakLayerMemoryInBytes;
+    }
+
+    /**
+     * Returns how many times a {@code View} has been promoted to a hardware layer.
+     */
+    public int getPromotionCount() {
+        return mPromotionCount;
+    }
+
+    /**
+     * Called when the given {@code view} starts animating.  Must be balanced by a call to
+     * {@link #onAnimationEnd(View)}.
+     */
+    void onAnimationStart(@NonNull View view) {
+        Layer layer = mLayers.get(view);
+        if (null != layer) {
+            ++layer.mAnimationCount;
+            return;
+        }
+
+        if (!mIsEnabled || View.LAYER_TYPE_NONE != view.getLayerType()) {
+            // Switched off, or somebody else is managing this View's layer.
+            return;
+        }
+
+        layer = new Layer((long) view.getWidth() * view.getHeight() * BYTES_PER_PIXEL);
+        mLayers.put(view, layer);
+        view.addOnAttachStateChangeListener(layer);
+        view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        ++mPromotionCount;
+        mLayerMemoryInBytes += layer.mSizeInBytes;
+        mPeakLayerMemoryInBytes = Math.max(mPeakLayerMemoryInBytes, mLayerMemoryInBytes);
+    }
+
+    /**
+     * Called when the given {@code view} stops animating.
+     */
+    void onAnimationEnd(@NonNull View view) {
+        Layer layer = mLayers.get(view);
+        if (null != layer && --layer.mAnimationCount <= 0) {
+            removeLayer(view);
+        }
+    }
+
+    private void removeLayer(@NonNull View view) {
+        Layer layer = mLayers.remove(view);
+        view.removeOnAttachStateChangeListener(layer);
+        view.setLayerType(View.LAYER_TYPE_NONE, null);
+        mLayerMemoryInBytes -= layer.mSizeInBytes;
+    }
+
+    // Also demotes its View if the View is detached before its animations end.
+    private class Layer implements View.OnAttachStateChangeListener {
+        private final long mSizeInBytes;
+        private int mAnimationCount = 1;
+
+        Layer(long sizeInBytes) {
+            mSizeInBytes = sizeInBytes;
+        }
+
+        @Override
+        public void onViewAttachedToWindow(View view) {
+            // No-op.
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View view) {
+            removeLayer(view);
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package io.mattcarroll.hover;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v7.util.DiffUtil;
@@ -22,7 +24,13 @@ import android.support.v7.util.ListUpdateCallback;
 import android.view.View;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * A {@code HoverMenu} models the structure of a menu that appears within a {@link HoverView}.
@@ -34,47 +42,296 @@ public abstract class HoverMenu {
 
     private static final String TAG = "HoverMenu";
 
+    private static Executor sDefaultDiffExecutor;
+
     private List<Section> mSections = new ArrayList<>();
-    private ListUpdateCallback mListUpdateCallback;
+    // Index of every Section in mSections by ID. Kept in sync with mSections.
+    private final Map<SectionId, Integer> mSectionIndices = new HashMap<>();
+    private boolean mIsIndexed = false;
+    private UpdateCallback mListUpdateCallback;
+    private int mTransactionDepth = 0;
+    private boolean mIsChangedInTransaction = false;
+
+    // Async diffing. All of these are only touched on the main thread.
+    private Executor mDiffExecutor;
+    // Delivers finished diffs to the main thread. Created for the first async diff so that a
+    // HoverMenu doesn't need a Looper until then.
+    private Executor mMainThreadExecutor;
+    private List<Section> mPendingSections;
+    private boolean mIsDiffing = false;
+    private int mDiffGeneration = 0;
 
     public abstract String getId();
 
+    /**
+     * Returns the number of {@code Section}s this menu has right now, including changes that
+     * haven't been reported with {@link #notifyMenuChanged()} yet.
+     */
     public abstract int getSectionCount();
 
+    /**
+     * Returns the {@code Section} at the given index in this menu right now, including changes
+     * that haven't been reported with {@link #notifyMenuChanged()} yet.
+     */
     @Nullable
     public abstract Section getSection(int index);
 
+    /**
+     * Returns the {@code Section} with the given ID as of the last call to
+     * {@link #notifyMenuChanged()}, or null if there is no such {@code Section}.  Unlike
+     * {@link #getSection(int)}, this reads the {@code Section}s that the {@link HoverView} has been
+     * told about, from an index that's kept up to date by {@link #notifyMenuChanged()}.
+     */
     @Nullable
-    public abstract Section getSection(@NonNull SectionId sectionId);
+    public final Section getSection(@NonNull SectionId sectionId) {
+        int index = getSectionIndex(sectionId);
+        return index >= 0 ? mSections.get(index) : null;
+    }
+
+    /**
+     * Returns the index of the {@code Section} with the same ID as the given {@code section} as of
+     * the last call to {@link #notifyMenuChanged()}, or -1 if there is no such {@code Section}.
+     */
+    public final int getSectionIndex(@NonNull Section section) {
+        return getSectionIndex(section.getId());
+    }
+
+    /**
+     * Returns the index of the {@code Section} with the given ID as of the last call to
+     * {@link #notifyMenuChanged()}, or -1 if there is no such {@code Section}.
+     */
+    public final int getSectionIndex(@NonNull SectionId sectionId) {
+        ensureIndexed();
+        Integer index = mSectionIndices.get(sectionId);
+        return null != index ? index : -1;
+    }
 
-    public int getSectionIndex(@NonNull Section section) {
+    /**
+     * Returns the number of {@code Section}s as of the last call to {@link #notifyMenuChanged()}.
+     * The {@link HoverView} reads Sections through these accessors so that what it displays always
+     * agrees with the updates it has been sent, even while a diff is running in the background.
+     */
+    int getAppliedSectionCount() {
+        ensureIndexed();
+        return mSections.size();
+    }
+
+    @NonNull
+    Section getAppliedSection(int index) {
+        ensureIndexed();
+        return mSections.get(index);
+    }
+
+    // Takes the initial snapshot of our Sections if notifyMenuChanged() hasn't done so yet.
+    private void ensureIndexed() {
+        if (!mIsIndexed) {
+            mSections = getSections();
+            reindexSections(new ArrayList<Section>());
+        }
+    }
+
+    // Brings mSectionIndices up to date with mSections, given the Sections that were indexed
+    // before. Only the entries that changed are touched.
+    private void reindexSections(@NonNull List<Section> oldSections) {
         for (int i = 0; i < mSections.size(); ++i) {
-            if (section.equals(mSections.get(i))) {
-                return i;
+            Integer oldIndex = mSectionIndices.get(mSections.get(i).getId());
+            if (null == oldIndex || i != oldIndex) {
+                mSectionIndices.put(mSections.get(i).getId(), i);
+            }
+        }
+
+        for (Section oldSection : oldSections) {
+            Integer index = mSectionIndices.get(oldSection.getId());
+            if (null != index
+                    && (index >= mSections.size() || !mSections.get(index).getId().equals(oldSection.getId()))) {
+                // This Section was removed.
+                mSectionIndices.remove(oldSection.getId());
             }
         }
-        return -1;
+        mIsIndexed = true;
     }
 
+    /**
+     * Returns all {@code Section}s of this menu right now, in order.  {@link #notifyMenuChanged()}
+     * diffs this list against the list it read last time.
+     */
     @NonNull
     public abstract List<Section> getSections();
 
-    void setUpdatedCallback(@Nullable ListUpdateCallback listUpdatedCallback) {
+    void setUpdatedCallback(@Nullable UpdateCallback listUpdatedCallback) {
         mListUpdateCallback = listUpdatedCallback;
     }
 
+    /**
+     * Diffs the {@code Section}s of this menu against the {@code Section}s from the last call to
+     * this method and updates the {@link HoverView} that displays this menu, if any.  Call this
+     * method from the main thread whenever the {@code Section}s of this menu change.
+     *
+     * If async diffing is enabled then the diff runs on a worker thread and the update is applied
+     * on the main thread when the diff is done.  Calls that arrive while a diff is running are
+     * coalesced: only the latest {@code Section}s are diffed once the running diff is applied.
+     *
+     * Within a transaction this method only records that the menu changed.  See
+     * {@link #beginTransaction()}.
+     */
     public void notifyMenuChanged() {
-        List<Section> oldSections = mSections;
-        List<Section> newSections = getSections();
-        mSections = newSections;
+        if (mTransactionDepth > 0) {
+            mIsChangedInTransaction = true;
+            return;
+        }
+
+        if (null != mDiffExecutor) {
+            mPendingSections = Collections.unmodifiableList(new ArrayList<>(getSections()));
+            if (!mIsDiffing) {
+                diffPendingSections();
+            }
+            return;
+        }
+
+        // Anything still in flight from async mode is older than what we're about to apply.
+        ++mDiffGeneration;
+        mPendingSections = null;
+        mIsDiffing = false;
 
+        List<Section> newSections = getSections();
+        DiffUtil.DiffResult result = null;
         if (null != mListUpdateCallback) {
-            DiffUtil.Callback diffCallback = new MenuDiffCallback(oldSections, newSections);
+            DiffUtil.Callback diffCallback = new MenuDiffCallback(mSections, newSections);
             // calculateDiff() can be long-running.  We let it run synchronously because we don't
-            // expect many Sections.
-            DiffUtil.DiffResult result = DiffUtil.calculateDiff(diffCallback, true);
+            // expect many Sections.  Menus that change often should enable async diffing.
+            result = DiffUtil.calculateDiff(diffCallback, true);
+        }
+        applySections(newSections, result);
+    }
+
+    /**
+     * Starts a transaction.  Calls to {@link #notifyMenuChanged()} are held back until the matching
+     * {@link #commitTransaction()}, which then diffs all changes made during the transaction at
+     * once.  Use this when changing a menu in several steps so that the {@link HoverView} updates
+     * once instead of once per step.  Transactions may be nested.
+     */
+    public void beginTransaction() {
+        ++mTransactionDepth;
+    }
+
+    /**
+     * Ends a transaction started with {@link #beginTransaction()}.  When the outermost transaction
+     * is committed, and {@link #notifyMenuChanged()} was called during the transaction, the menu is
+     * diffed and the {@link HoverView} is updated.
+     */
+    public void commitTransaction() {
+        if (0 == mTransactionDepth) {
+            throw new IllegalStateException("commitTransaction() called without beginTransaction().");
+        }
+
+        --mTransactionDepth;
+        if (0 == mTransactionDepth && mIsChangedInTransaction) {
+            mIsChangedInTransaction = false;
+            notifyMenuChanged();
+        }
+    }
+
+    /**
+     * Enables or disables diffing of {@code Section}s on a worker thread when
+     * {@link #notifyMenuChanged()} is called.  Enable this for menus that are rebuilt often.
+     *
+     * When async diffing is enabled, {@link Content#equals(Object)} is invoked on the worker thread.
+     */
+    public void enableAsyncDiffing(boolean isEnabled) {
+        setDiffExecutor(isEnabled ? getDefaultDiffExecutor() : null);
+    }
+
+    /**
+     * Sets the {@code Executor} that runs diffs of this menu's {@code Section}s, or null to diff
+     * synchronously on the main thread.
+     */
+    public void setDiffExecutor(@Nullable Executor diffExecutor) {
+        mDiffExecutor = diffExecutor;
+    }
+
+    // Visible for testing.
+    void setMainThreadExecutor(@NonNull Executor mainThreadExecutor) {
+        mMainThreadExecutor = mainThreadExecutor;
+    }
+
+    private void diffPendingSections() {
+        // The diff must be based on what the HoverView has seen, even if it hasn't seen anything yet.
+        ensureIndexed();
+        final List<Section> oldSections = mSections;
+        final List<Section> newSections = mPendingSections;
+        final int diffGeneration = mDiffGeneration;
+        mPendingSections = null;
+        mIsDiffing = true;
+        if (null == mMainThreadExecutor) {
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            mMainThreadExecutor = new Executor() {
+                @Override
+                public void execute(@NonNull Runnable runnable) {
+                    mainHandler.post(runnable);
+                }
+            };
+        }
+        final Executor mainThreadExecutor = mMainThreadExecutor;
+
+        mDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new MenuDiffCallback(oldSections, newSections), true);
+                mainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (diffGeneration != mDiffGeneration) {
+                            // A synchronous update superseded this diff.
+                            return;
+                        }
+
+                        mIsDiffing = false;
+                        applySections(newSections, result);
+
+                        if (null != mPendingSections && null != mDiffExecutor) {
+                            diffPendingSections();
+                        } else if (null != mPendingSections) {
+                            // Async diffing was disabled while we were busy.
+                            mPendingSections = null;
+                            notifyMenuChanged();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void applySections(@NonNull List<Section> newSections, @Nullable DiffUtil.DiffResult result) {
+        List<Section> oldSections = mSections;
+        for (Section newSection : newSections) {
+            Integer oldIndex = mSectionIndices.get(newSection.getId());
+            if (null != oldIndex) {
+                newSection.adoptContentFrom(oldSections.get(oldIndex));
+            }
+        }
+        mSections = newSections;
+        reindexSections(oldSections);
+
+        if (null != mListUpdateCallback && null != result) {
+            mListUpdateCallback.onUpdatesBegin();
             result.dispatchUpdatesTo(mListUpdateCallback);
+            mListUpdateCallback.onUpdatesEnd();
+        }
+    }
+
+    @NonNull
+    private static synchronized Executor getDefaultDiffExecutor() {
+        if (null == sDefaultDiffExecutor) {
+            sDefaultDiffExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "HoverMenu-diff");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
         }
+        return sDefaultDiffExecutor;
     }
 
     public static class SectionId {
@@ -112,6 +369,8 @@ public abstract class HoverMenu {
         private final SectionId mId;
         private final View mTabView;
         private final Content mContent;
+        // Only used by lazy Sections.  Shared with the Sections that replace this one.
+        private CachedContent mCachedContent;
 
         public Section(@NonNull SectionId id, @NonNull View tabView, @NonNull Content content) {
             mId = id;
@@ -119,6 +378,18 @@ public abstract class HoverMenu {
             mContent = content;
         }
 
+        /**
+         * Creates a {@code Section} whose {@link Content} isn't created until it's first needed,
+         * e.g., when the {@code Section} is first selected.  The {@code Content} may be released
+         * while it's hidden and created again later.  See {@link RestorableContent}.
+         */
+        public Section(@NonNull SectionId id, @NonNull View tabView, @NonNull ContentFactory contentFactory) {
+            mId = id;
+            mTabView = tabView;
+            mContent = null;
+            mCachedContent = new CachedContent(contentFactory);
+        }
+
         @NonNull
         public SectionId getId() {
             return mId;
@@ -129,18 +400,94 @@ public abstract class HoverMenu {
             return mTabView;
         }
 
+        /**
+         * Returns this {@code Section}'s {@link Content}.  If this {@code Section} was created with
+         * a {@link ContentFactory} then this call may create the {@code Content}, so only call
+         * this method from the main thread.
+         */
         @NonNull
         public Content getContent() {
-            return mContent;
+            return null != mContent ? mContent : mCachedContent.getContent();
+        }
+
+        @Nullable
+        CachedContent getCachedContent() {
+            return mCachedContent;
+        }
+
+        // Compares Content without creating any.  Lazy Sections are compared by their factories.
+        boolean hasSameContentAs(@NonNull Section other) {
+            if (null != mCachedContent || null != other.mCachedContent) {
+                return null != mCachedContent && null != other.mCachedContent
+                        && mCachedContent.getContentFactory().equals(other.mCachedContent.getContentFactory());
+            }
+            return mContent.equals(other.mContent);
+        }
+
+        // Shares the CachedContent of {@code oldSection} if it comes from the same factory, so
+        // that rebuilding a menu doesn't create the same Content again.
+        void adoptContentFrom(@NonNull Section oldSection) {
+            if (null != mCachedContent && hasSameContentAs(oldSection)) {
+                mCachedContent = oldSection.mCachedContent;
+            }
+        }
+    }
+
+    /**
+     * Receives the changes to a {@code HoverMenu}.  All changes that result from one diff are
+     * dispatched between a call to {@link #onUpdatesBegin()} and a call to {@link #onUpdatesEnd()}.
+     */
+    abstract static class UpdateCallback implements ListUpdateCallback {
+
+        void onUpdatesBegin() {
+            // No-op by default.
+        }
+
+        void onUpdatesEnd() {
+            // No-op by default.
         }
     }
 
-    private static class MenuDiffCallback extends DiffUtil.Callback {
+    /**
+     * Payload of a changed {@code Section}, as dispatched to {@link UpdateCallback#onChanged(int, int, Object)}.
+     * Says which parts of the {@code Section} changed so that only those parts need to be updated.
+     */
+    static final class SectionChange {
+
+        private final boolean mIsTabViewChanged;
+        private final boolean mIsContentChanged;
+
+        SectionChange(boolean isTabViewChanged, boolean isContentChanged) {
+            mIsTabViewChanged = isTabViewChanged;
+            mIsContentChanged = isContentChanged;
+        }
+
+        /**
+         * True if the {@code Section} has a different tab {@code View}.
+         */
+        boolean isTabViewChanged() {
+            return mIsTabViewChanged;
+        }
+
+        /**
+         * True if the {@code Section}'s {@link Content} is no longer equal to what was there before.
+         */
+        boolean isContentChanged() {
+            return mIsContentChanged;
+        }
+
+        @Override
+        public String toString() {
+            return "SectionChange{tabView=" + mIsTabViewChanged + ", content=" + mIsContentChanged + "}";
+        }
+    }
+
+    static class MenuDiffCallback extends DiffUtil.Callback {
 
         private final List<Section> mOldList;
         private final List<Section> mNewList;
 
-        private MenuDiffCallback(@NonNull List<Section> oldList, @NonNull List<Section> newList) {
+        MenuDiffCallback(@NonNull List<Section> oldList, @NonNull List<Section> newList) {
             mOldList = oldList;
             mNewList = newList;
         }
@@ -165,8 +512,19 @@ public abstract class HoverMenu {
             Section oldSection = mOldList.get(oldItemPosition);
             Section newSection = mNewList.get(newItemPosition);
 
-            return oldSection.mTabView.equals(newSection.getTabView())
-                    && oldSection.getContent().equals(newSection.getContent());
+            return oldSection.getTabView() == newSection.getTabView()
+                    && oldSection.hasSameContentAs(newSection);
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            Section oldSection = mOldList.get(oldItemPosition);
+            Section newSection = mNewList.get(newItemPosition);
+
+            return new SectionChange(
+                    oldSection.getTabView() != newSection.getTabView(),
+                    !oldSection.hasSameContentAs(newSection)
+            );
         }
     }
 }
@@ -15,8 +15,10 @@
  */
 package io.mattcarroll.hover;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.os.Parcel;
 import android.os.Parcelable;
@@ -26,6 +28,7 @@ import android.util.AttributeSet;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.ViewConfiguration;
+import android.view.WindowManager;
 import android.widget.RelativeLayout;
 
 import java.util.Set;
@@ -47,6 +50,7 @@ import static io.mattcarroll.hover.SideDock.SidePosition.LEFT;
 public class HoverView extends RelativeLayout {
 
     private static final String TAG = "HoverView";
+    private static final int DEFAULT_CONTENT_PREFETCH_DISTANCE = 1;
 
     private static final String PREFS_FILE = "hover";
     private static final String SAVED_STATE_DOCK_POSITION = "_dock_position";
@@ -97,6 +101,12 @@ public class HoverView extends RelativeLayout {
     SideDock mCollapsedDock;
     boolean mIsAddedToWindow;
     boolean mIsTouchableInWindow;
+    boolean mIsCollapsedWindowShrinkingEnabled = false;
+    boolean mIsExpandPrewarmingEnabled = false;
+    int mContentPrefetchDistance = DEFAULT_CONTENT_PREFETCH_DISTANCE;
+    boolean mIsWindowShrunk = false;
+    int mWindowOffsetX;
+    int mWindowOffsetY;
     boolean mIsDebugMode = false;
     int mTabSize;
     OnExitListener mOnExitListener;
@@ -140,7 +150,7 @@ public class HoverView extends RelativeLayout {
 
         if (null != initialDockPosition) {
             mCollapsedDock = new SideDock(
-                    this,
+                    mScreen,
                     mTabSize,
                     initialDockPosition
             );
@@ -163,7 +173,7 @@ public class HoverView extends RelativeLayout {
         float dockPosition = a.getFraction(R.styleable.HoverView_dockPosition, 1, 1, 0.5f);
         SideDock.SidePosition sidePosition = new SideDock.SidePosition(dockSide, dockPosition);
         mCollapsedDock = new SideDock(
-                this,
+                mScreen,
                 tabSize,
                 sidePosition
         );
@@ -194,6 +204,29 @@ public class HoverView extends RelativeLayout {
         return super.dispatchKeyEventPreIme(event);
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        if (mIsWindowShrunk) {
+            // Our Window now only covers the collapsed tab. Scroll so that our children can keep
+            // positioning themselves in screen coordinates.
+            scrollTo(mWindowOffsetX, mWindowOffsetY);
+        } else {
+            mScreen.unlockSize();
+            scrollTo(0, 0);
+        }
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+
+        // The screen may have rotated. Go back to full screen so that the collapsed state can
+        // re-dock against the new screen size and then shrink again.
+        expandWindowToScreen();
+    }
+
     @Override
     protected Parcelable onSaveInstanceState() {
         Parcelable superState = super.onSaveInstanceState();
@@ -235,10 +268,99 @@ public class HoverView extends RelativeLayout {
     // TODO: when to call this?
     public void release() {
         Log.d(TAG, "Released.");
-        mDragger.deactivate();
+        mDragger.release();
         // TODO: should we also release the screen?
     }
 
+    /**
+     * Releases memory that this {@code HoverView} can do without, e.g., tabs kept around for
+     * reuse, hidden lazily created {@link Content}, or an expanded menu prepared ahead of time.
+     * Forward calls from {@link ComponentCallbacks2#onTrimMemory(int)} here.
+     *
+     * @param level the level passed to {@code onTrimMemory()}
+     */
+    public void onTrimMemory(int level) {
+        Log.d(TAG, "onTrimMemory(): " + level);
+        mState.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mScreen.trimTabPool();
+            mScreen.getContentCache().releaseHiddenContent();
+        }
+    }
+
+    /**
+     * When enabled, a collapsed {@code HoverView} prepares to expand once its tab is docked and
+     * the main thread is idle: it creates the tabs of every section and lays out the selected
+     * section's {@link Content} while they're hidden.  Expanding is then just an animation.  The
+     * prepared work is discarded when the menu changes, when this {@code HoverView} closes, when
+     * prewarming is disabled, and in {@link #onTrimMemory(int)}.
+     *
+     * @param enabled true to prepare the expanded menu ahead of time, false otherwise
+     */
+    public void enableExpandPrewarming(boolean enabled) {
+        mIsExpandPrewarmingEnabled = enabled;
+        mState.onExpandPrewarmingChanged(enabled);
+    }
+
+    /**
+     * Sets the maximum number of tabs that this {@code HoverView} keeps around for reuse after
+     * they're removed, e.g., when collapsing.  Reusing tabs makes expanding cheaper.
+     *
+     * @param maxPooledTabCount maximum number of tabs to keep for reuse, or 0 to not reuse tabs
+     */
+    public void setMaxPooledTabCount(int maxPooledTabCount) {
+        mScreen.setMaxPooledTabCount(maxPooledTabCount);
+    }
+
+    /**
+     * Sets the maximum number of {@link Content}s created by {@link ContentFactory}s that this
+     * {@code HoverView} keeps, including the displayed one.  The least recently shown hidden
+     * {@code Content} beyond this maximum is released and created again when it's next shown.
+     * {@link RestorableContent} can save and restore its state across that.
+     *
+     * @param maxCachedContentCount maximum number of lazily created {@code Content}s to keep
+     */
+    public void setMaxCachedContentCount(int maxCachedContentCount) {
+        mScreen.getContentCache().setMaxCachedContentCount(maxCachedContentCount);
+    }
+
+    /**
+     * Sets how many sections on either side of the selected section have their {@link Content}
+     * built and measured ahead of time while expanded, when the main thread is idle, so that
+     * selecting them is quick.  Prefetched {@code Content} counts towards
+     * {@link #setMaxCachedContentCount(int)}, which limits how much is prefetched.
+     *
+     * @param contentPrefetchDistance number of neighboring sections to prefetch on each side, or 0
+     *                                to not prefetch
+     */
+    public void setContentPrefetchDistance(int contentPrefetchDistance) {
+        mContentPrefetchDistance = contentPrefetchDistance;
+    }
+
+    /**
+     * Makes the collapsed tab follow the user's finger more closely while it's dragged by
+     * predicting where the finger will be {@code lookAheadInMillis} from the latest touch sample.
+     * A look-ahead of about one frame, e.g., 16ms, hides most of the touch-to-display lag.
+     *
+     * @param lookAheadInMillis how far ahead to predict, or 0 to disable prediction
+     */
+    public void setDragPredictionLookAhead(long lookAheadInMillis) {
+        mDragger.setTouchPredictor(lookAheadInMillis > 0 ? new TouchPredictor(lookAheadInMillis) : null);
+    }
+
+    /**
+     * Draws a snapshot of each tab {@code View} while its tab is dragged, docked or scaled, instead
+     * of the live {@code View}, and switches back to the live {@code View} once the tab comes to
+     * rest.  Worth enabling for tab {@code View}s that redraw themselves often, e.g., ones with
+     * animated drawables.  A tab {@code View} that changes while its tab moves, through
+     * {@link HoverMenu#notifyMenuChanged()}, is snapshotted again.
+     *
+     * @param enabled true to draw snapshots of moving tabs, false to always draw the live tab views
+     */
+    public void enableTabSnapshots(boolean enabled) {
+        mScreen.enableTabSnapshots(enabled);
+    }
+
     public void enableDebugMode(boolean debugMode) {
         mIsDebugMode = debugMode;
 
@@ -246,6 +368,74 @@ public class HoverView extends RelativeLayout {
         mScreen.enableDrugMode(debugMode);
     }
 
+    /**
+     * When enabled, and this {@code HoverView} is displayed directly in a {@code Window}, the
+     * {@code Window} shrinks to the bounds of the tab whenever the collapsed tab is docked, rather
+     * than covering the whole screen.  This saves the compositor from blending a full screen layer
+     * over every app just to show one tab.  The {@code Window} grows back to full screen when the
+     * user begins dragging the tab or when this {@code HoverView} expands.
+     *
+     * @param enabled true to shrink the Window while collapsed and docked, false otherwise
+     */
+    public void enableCollapsedWindowShrinking(boolean enabled) {
+        mIsCollapsedWindowShrinkingEnabled = enabled;
+        if (!enabled) {
+            expandWindowToScreen();
+        }
+    }
+
+    // Shrinks our Window to the bounds of the given tab, if enabled.
+    void shrinkWindowTo(@NonNull FloatingTab tab) {
+        if (!mIsCollapsedWindowShrinkingEnabled || !mIsAddedToWindow) {
+            return;
+        }
+
+        boolean wasShrunk = mIsWindowShrunk;
+        if (!wasShrunk) {
+            // Remember the full screen size so that docks can still be calculated while shrunk.
+            mScreen.lockSize();
+            mIsWindowShrunk = true;
+        }
+
+        mWindowOffsetX = (int) tab.getX();
+        mWindowOffsetY = (int) tab.getY();
+        mWindowViewController.setViewBounds(this, mWindowOffsetX, mWindowOffsetY, tab.getTabSize(), tab.getTabSize());
+
+        if (wasShrunk) {
+            // Our size isn't changing, only our position, so onSizeChanged() won't adjust our scroll.
+            // Move the window now rather than on the next frame, or the content would be scrolled
+            // to the new position for a frame while the window is still at the old one.
+            mWindowViewController.commitPendingUpdates();
+            scrollTo(mWindowOffsetX, mWindowOffsetY);
+        }
+    }
+
+    // Returns our Window to full screen if it was shrunk.
+    void expandWindowToScreen() {
+        if (!mIsWindowShrunk) {
+            return;
+        }
+
+        mIsWindowShrunk = false;
+        if (mIsAddedToWindow) {
+            // onSizeChanged() unlocks the Screen size and resets our scroll once we're full screen.
+            mWindowViewController.setViewBounds(
+                    this,
+                    0,
+                    0,
+                    WindowManager.LayoutParams.MATCH_PARENT,
+                    WindowManager.LayoutParams.MATCH_PARENT
+            );
+            // Don't wait for the next frame. Whatever needs the whole screen, e.g., a tab that's
+            // picked up to be dragged, starts moving right away and would be clipped by a window
+            // that's still the size of the tab.
+            mWindowViewController.commitPendingUpdates();
+        } else {
+            mScreen.unlockSize();
+            scrollTo(0, 0);
+        }
+    }
+
     void setState(@NonNull HoverViewState state) {
         mState = state;
         mState.takeControl(this);
@@ -401,7 +591,7 @@ public class HoverView extends RelativeLayout {
         public void restore(@NonNull HoverView hoverView) {
             SideDock.SidePosition sidePosition = getSidePosition();
             hoverView.mCollapsedDock = new SideDock(
-                    hoverView,
+                    hoverView.mScreen,
                     hoverView.mTabSize,
                     sidePosition
             );
@@ -455,7 +645,7 @@ public class HoverView extends RelativeLayout {
         public void restore(@NonNull HoverView hoverView, @NonNull HoverMenu menu) {
             SideDock.SidePosition sidePosition = getSidePosition(menu.getId());
             hoverView.mCollapsedDock = new SideDock(
-                    hoverView,
+                    hoverView.mScreen,
                     hoverView.mTabSize,
                     sidePosition
             );
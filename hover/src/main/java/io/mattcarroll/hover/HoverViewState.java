@@ -83,4 +83,18 @@ interface HoverViewState {
      * untouchable (touch events pass through the overlay to whatever is beneath).
      */
     void makeUntouchableInWindow();
+
+    /**
+     * Releases anything this state keeps around that it can do without, e.g., work prepared ahead
+     * of time.
+     * @param level the level passed to {@code ComponentCallbacks2#onTrimMemory(int)}
+     */
+    void onTrimMemory(int level);
+
+    /**
+     * Called when preparing to expand ahead of time is enabled or disabled.  When disabled, any
+     * work this state already prepared must be discarded.
+     * @param enabled true if expand prewarming was enabled, false if it was disabled
+     */
+    void onExpandPrewarmingChanged(boolean enabled);
 }
@@ -100,7 +100,7 @@ class HoverViewStateClosed extends BaseHoverViewState {
         mHoverView.restoreVisualState();
 
         if (null == mHoverView.mSelectedSectionId || null == mHoverView.mMenu.getSection(mHoverView.mSelectedSectionId)) {
-            mHoverView.mSelectedSectionId = mHoverView.mMenu.getSection(0).getId();
+            mHoverView.mSelectedSectionId = mHoverView.mMenu.getAppliedSection(0).getId();
         }
     }
 
@@ -16,12 +16,16 @@
 package io.mattcarroll.hover;
 
 import android.graphics.Point;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v7.util.ListUpdateCallback;
 import android.util.Log;
 import android.view.View;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static android.view.View.GONE;
 import static android.view.View.INVISIBLE;
 import static android.view.View.VISIBLE;
@@ -39,6 +43,10 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
 
     private static final String TAG = "HoverMenuViewStateCollapsed";
 
+    // Rate (per second) at which a flung tab would lose its velocity if it coasted freely. A tab
+    // released at velocity v coasts about v / FLING_FRICTION pixels before stopping.
+    private static final float FLING_FRICTION = 4f;
+
     private HoverView mHoverView;
     private FloatingTab mFloatingTab;
     private HoverMenu.Section mSelectedSection;
@@ -48,6 +56,29 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
     private boolean mIsDocked = false;
     private Dragger.DragListener mDragListener;
     private Listener mListener;
+    private boolean mIsPrewarmScheduled = false;
+    private boolean mIsPrewarmed = false;
+    private final List<FloatingTab> mPrewarmedTabs = new ArrayList<>();
+
+    private final MessageQueue.IdleHandler mPrewarmIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            mIsPrewarmScheduled = false;
+            prewarmExpansion();
+            return false;
+        }
+    };
+
+    // The same Runnable for every dock so that docking again before coming to rest docks once.
+    private final Runnable mOnDockedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // The tab may finish docking after we've given it to another state.
+            if (mHasControl) {
+                onDocked();
+            }
+        }
+    };
 
     private final View.OnLayoutChangeListener mOnLayoutChangeListener = new View.OnLayoutChangeListener() {
         @Override
@@ -57,6 +88,7 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
                 // only be a concern when displaying as a window overlay, but not when displaying
                 // within a view hierarchy.
                 moveToDock();
+                mHoverView.shrinkWindowTo(mFloatingTab);
             }
         }
     };
@@ -83,7 +115,7 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
 
         Log.d(TAG, "Taking control with selected section: " + mHoverView.mSelectedSectionId);
         mSelectedSection = mHoverView.mMenu.getSection(mHoverView.mSelectedSectionId);
-        mSelectedSection = null != mSelectedSection ? mSelectedSection : mHoverView.mMenu.getSection(0);
+        mSelectedSection = null != mSelectedSection ? mSelectedSection : mHoverView.mMenu.getAppliedSection(0);
         mSelectedSectionIndex = mHoverView.mMenu.getSectionIndex(mSelectedSection);
         mFloatingTab = mHoverView.mScreen.getChainedTab(mHoverView.mSelectedSectionId);
         final boolean wasFloatingTabVisible;
@@ -152,9 +184,19 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
             mHoverView.mMenu.setUpdatedCallback(null);
         }
 
+        unschedulePrewarm();
+        if (nextState == mHoverView.mExpanded) {
+            // The expanded state picks up the tabs and content that we prepared.
+            mPrewarmedTabs.clear();
+            mIsPrewarmed = false;
+        } else {
+            discardPrewarmedExpansion();
+        }
+
         mHasControl = false;
         mIsDocked = false;
         deactivateDragger();
+        mFloatingTab.setDragging(false);
         mDragListener = null;
         mFloatingTab = null;
 
@@ -164,10 +206,11 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
 
     @Override
     public void setMenu(@Nullable final HoverMenu menu) {
+        discardPrewarmedExpansion();
         mHoverView.mMenu = menu;
 
         // If the menu is null or empty then we can't be collapsed, close the menu.
-        if (null == menu || menu.getSectionCount() == 0) {
+        if (null == menu || menu.getAppliedSectionCount() == 0) {
             close();
             return;
         }
@@ -175,58 +218,101 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
         mHoverView.restoreVisualState();
 
         if (null == mHoverView.mSelectedSectionId || null == mHoverView.mMenu.getSection(mHoverView.mSelectedSectionId)) {
-            mHoverView.mSelectedSectionId = mHoverView.mMenu.getSection(0).getId();
+            mHoverView.mSelectedSectionId = mHoverView.mMenu.getAppliedSection(0).getId();
         }
 
         listenForMenuChanges();
     }
 
     private void listenForMenuChanges() {
-        mHoverView.mMenu.setUpdatedCallback(new ListUpdateCallback() {
+        mHoverView.mMenu.setUpdatedCallback(new HoverMenu.UpdateCallback() {
+            private boolean mIsStructureChanged;
+
+            @Override
+            void onUpdatesBegin() {
+                mIsStructureChanged = false;
+            }
+
+            @Override
+            void onUpdatesEnd() {
+                applyMenuUpdates(mIsStructureChanged);
+            }
+
             @Override
             public void onInserted(int position, int count) {
-                // no-op
+                mIsStructureChanged = true;
             }
 
             @Override
             public void onRemoved(int position, int count) {
                 Log.d(TAG, "onRemoved. Position: " + position + ", Count: " + count);
-                if (mSelectedSectionIndex == position) {
-                    Log.d(TAG, "Selected tab removed. Displaying a new tab.");
-                    // TODO: externalize a selection strategy for when the selected section disappears
-                    mFloatingTab.removeOnLayoutChangeListener(mOnLayoutChangeListener);
-                    mHoverView.mScreen.destroyChainedTab(mFloatingTab);
-
-                    mSelectedSectionIndex = mSelectedSectionIndex > 0 ? mSelectedSectionIndex - 1 : 0;
-                    mSelectedSection = mHoverView.mMenu.getSection(mSelectedSectionIndex);
-                    mHoverView.mSelectedSectionId = mSelectedSection.getId();
-                    mFloatingTab = mHoverView.mScreen.createChainedTab(
-                            mSelectedSection.getId(),
-                            mSelectedSection.getTabView()
-                    );
-
-                    mFloatingTab.addOnLayoutChangeListener(mOnLayoutChangeListener);
-                }
+                mIsStructureChanged = true;
             }
 
             @Override
             public void onMoved(int fromPosition, int toPosition) {
-                // no-op
+                mIsStructureChanged = true;
             }
 
             @Override
             public void onChanged(int position, int count, Object payload) {
                 Log.d(TAG, "Tab(s) changed. From: " + position + ", To: " + count);
-                for (int i = position; i < position + count; ++i) {
-                    if (i == mSelectedSectionIndex) {
-                        Log.d(TAG, "Selected tab changed. Updating its display.");
-                        mFloatingTab.setTabView(mHoverView.mMenu.getSection(position).getTabView());
-                    }
-                }
             }
         });
     }
 
+    // Brings us up to date with the menu once all updates of a diff are in.  The positions in the
+    // updates are relative to the Sections part-way through the updates, so we go by Section ID
+    // instead.  Inserted, removed and moved sections invalidate a pre-warmed expansion.  Changed
+    // sections don't: their tabs, including our floating tab, are rebound in place and only stale
+    // prepared content is thrown away.
+    private void applyMenuUpdates(boolean isStructureChanged) {
+        if (isStructureChanged) {
+            discardPrewarmedExpansion();
+        }
+
+        if (0 == mHoverView.mMenu.getAppliedSectionCount()) {
+            // Like in setMenu(), we can't be collapsed without any sections.
+            close();
+            return;
+        }
+
+        HoverMenu.Section selectedSection = mHoverView.mMenu.getSection(mSelectedSection.getId());
+        if (null == selectedSection) {
+            Log.d(TAG, "Selected tab removed. Displaying a new tab.");
+            // TODO: externalize a selection strategy for when the selected section disappears
+            mFloatingTab.removeOnLayoutChangeListener(mOnLayoutChangeListener);
+            mHoverView.mScreen.destroyChainedTab(mFloatingTab);
+
+            mSelectedSectionIndex = Math.min(Math.max(mSelectedSectionIndex - 1, 0), mHoverView.mMenu.getAppliedSectionCount() - 1);
+            mSelectedSection = mHoverView.mMenu.getAppliedSection(mSelectedSectionIndex);
+            mHoverView.mSelectedSectionId = mSelectedSection.getId();
+            mFloatingTab = mHoverView.mScreen.createChainedTab(
+                    mSelectedSection.getId(),
+                    mSelectedSection.getTabView()
+            );
+
+            mFloatingTab.addOnLayoutChangeListener(mOnLayoutChangeListener);
+        } else {
+            if (!selectedSection.hasSameContentAs(mSelectedSection)) {
+                mHoverView.mScreen.getContentDisplay().discardPreparedContent();
+            }
+            mSelectedSection = selectedSection;
+            mSelectedSectionIndex = mHoverView.mMenu.getSectionIndex(selectedSection);
+        }
+
+        for (int i = 0; i < mHoverView.mMenu.getAppliedSectionCount(); ++i) {
+            HoverMenu.Section section = mHoverView.mMenu.getAppliedSection(i);
+            FloatingTab tab = mHoverView.mScreen.getChainedTab(section.getId());
+            if (null != tab && tab.getTabView() != section.getTabView()) {
+                Log.d(TAG, "Tab view changed for section " + section.getId() + ". Rebinding it.");
+                tab.setTabView(section.getTabView());
+            }
+        }
+
+        schedulePrewarm();
+    }
+
     @Override
     public boolean respondsToBackButton() {
         return false;
@@ -243,13 +329,17 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
 
     private void onPickedUpByUser() {
         mIsDocked = false;
+        mFloatingTab.setDragging(true);
+        // The tab needs the whole screen while it's dragged, including the exit zone.
+        mHoverView.expandWindowToScreen();
         mHoverView.mScreen.getExitView().setVisibility(VISIBLE);
         if (null != mListener) {
             mListener.onDragStart();
         }
     }
 
-    private void onDroppedByUser() {
+    private void onDroppedByUser(float velocityX, float velocityY) {
+        mFloatingTab.setDragging(false);
         mHoverView.mScreen.getExitView().setVisibility(GONE);
         if (null != mListener) {
             mListener.onDragEnd();
@@ -268,26 +358,46 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
             });
         } else {
             int tabSize = mHoverView.getResources().getDimensionPixelSize(R.dimen.hover_tab_size);
-            Point screenSize = new Point(mHoverView.mScreen.getWidth(), mHoverView.mScreen.getHeight());
-            float tabHorizontalPositionPercent = (float) mFloatingTab.getPosition().x / screenSize.x;
-            float tabVerticalPosition = (float) mFloatingTab.getPosition().y / screenSize.y;
-            Log.d(TAG, "Dropped at horizontal " + tabHorizontalPositionPercent + ", vertical " + tabVerticalPosition);
-            SideDock.SidePosition sidePosition = new SideDock.SidePosition(
-                    tabHorizontalPositionPercent <= 0.5 ? SideDock.SidePosition.LEFT : SideDock.SidePosition.RIGHT,
-                    tabVerticalPosition
+            SideDock.SidePosition sidePosition = resolveDockSidePosition(
+                    mFloatingTab.getPosition(),
+                    velocityX,
+                    velocityY
             );
             mHoverView.mCollapsedDock = new SideDock(
-                    mHoverView,
+                    mHoverView.mScreen,
                     tabSize,
                     sidePosition
             );
             mHoverView.saveVisualState();
             Log.d(TAG, "User dropped tab. Sending to new dock: " + mHoverView.mCollapsedDock);
 
-            sendToDock();
+            sendToDock(velocityX, velocityY);
         }
     }
 
+    /**
+     * Chooses the side of the screen that a tab released at {@code releasePosition} should dock
+     * against.  A tab that's flung keeps travelling in the direction of the fling, so the decision
+     * is based on where the tab would coast to rather than where it was let go.
+     */
+    @NonNull
+    private SideDock.SidePosition resolveDockSidePosition(@NonNull Point releasePosition,
+                                                          float velocityX,
+                                                          float velocityY) {
+        int screenWidth = mHoverView.mScreen.getWidth();
+        int screenHeight = mHoverView.mScreen.getHeight();
+        float projectedX = releasePosition.x + (velocityX / FLING_FRICTION);
+        float projectedY = releasePosition.y + (velocityY / FLING_FRICTION);
+        float tabHorizontalPositionPercent = projectedX / screenWidth;
+        float tabVerticalPosition = Math.max(0f, Math.min(1f, projectedY / screenHeight));
+        Log.d(TAG, "Released at " + releasePosition + " with velocity (" + velocityX + ", " + velocityY
+                + "). Projected to horizontal " + tabHorizontalPositionPercent + ", vertical " + tabVerticalPosition);
+        return new SideDock.SidePosition(
+                tabHorizontalPositionPercent <= 0.5 ? SideDock.SidePosition.LEFT : SideDock.SidePosition.RIGHT,
+                tabVerticalPosition
+        );
+    }
+
     private void onTap() {
         Log.d(TAG, "Floating tab was tapped.");
         expand();
@@ -297,15 +407,14 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
     }
 
     private void sendToDock() {
+        sendToDock(0, 0);
+    }
+
+    private void sendToDock(float velocityX, float velocityY) {
         Log.d(TAG, "Sending floating tab to dock.");
         deactivateDragger();
         mFloatingTab.setDock(mHoverView.mCollapsedDock);
-        mFloatingTab.dock(new Runnable() {
-            @Override
-            public void run() {
-                onDocked();
-            }
-        });
+        mFloatingTab.dock(velocityX, velocityY, mOnDockedRunnable);
     }
 
     private void moveToDock() {
@@ -321,7 +430,7 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
         if (null == mHoverView.mCollapsedDock) {
             int tabSize = mHoverView.getResources().getDimensionPixelSize(R.dimen.hover_tab_size);
             mHoverView.mCollapsedDock = new SideDock(
-                    mHoverView,
+                    mHoverView.mScreen,
                     tabSize,
                     new SideDock.SidePosition(SideDock.SidePosition.LEFT, 0.5f)
             );
@@ -332,6 +441,8 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
         Log.d(TAG, "Docked. Activating dragger.");
         mIsDocked = true;
         activateDragger();
+        mHoverView.shrinkWindowTo(mFloatingTab);
+        schedulePrewarm();
 
         // We consider ourselves having gone from "collapsing" to "collapsed" upon the very first dock.
         boolean didJustCollapse = !mIsCollapsed;
@@ -346,8 +457,80 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
         }
     }
 
-    private void moveTabTo(@NonNull Point position) {
-        mFloatingTab.moveTo(position);
+    @Override
+    public void onTrimMemory(int level) {
+        discardPrewarmedExpansion();
+    }
+
+    @Override
+    public void onExpandPrewarmingChanged(boolean enabled) {
+        if (enabled) {
+            if (mIsDocked) {
+                schedulePrewarm();
+            }
+        } else {
+            unschedulePrewarm();
+            discardPrewarmedExpansion();
+        }
+    }
+
+    private void schedulePrewarm() {
+        if (mHoverView.mIsExpandPrewarmingEnabled && !mIsPrewarmed && !mIsPrewarmScheduled) {
+            mIsPrewarmScheduled = true;
+            Looper.myQueue().addIdleHandler(mPrewarmIdleHandler);
+        }
+    }
+
+    private void unschedulePrewarm() {
+        if (mIsPrewarmScheduled) {
+            mIsPrewarmScheduled = false;
+            Looper.myQueue().removeIdleHandler(mPrewarmIdleHandler);
+        }
+    }
+
+    // Does the expensive parts of expanding ahead of time, while we're docked and the main thread
+    // has nothing else to do: creates the tabs of every other section and lays out the selected
+    // section's content. Everything stays hidden until the expanded state shows it.
+    private void prewarmExpansion() {
+        if (!mHasControl || !mIsDocked || mIsPrewarmed || null == mHoverView.mMenu) {
+            return;
+        }
+
+        Log.d(TAG, "Preparing expanded menu ahead of time.");
+        for (int i = 0; i < mHoverView.mMenu.getAppliedSectionCount(); ++i) {
+            HoverMenu.Section section = mHoverView.mMenu.getAppliedSection(i);
+            if (null == mHoverView.mScreen.getChainedTab(section.getId())) {
+                FloatingTab tab = mHoverView.mScreen.createChainedTab(section.getId(), section.getTabView());
+                tab.disappearImmediate();
+                mPrewarmedTabs.add(tab);
+            }
+        }
+        mHoverView.mScreen.getContentDisplay().prepareContent(
+                mSelectedSection.getContent(),
+                mHoverView.mScreen.getWidth(),
+                mHoverView.mScreen.getHeight()
+        );
+        mHoverView.mScreen.getContentCache().onContentUsed(mSelectedSection);
+        mIsPrewarmed = true;
+    }
+
+    private void discardPrewarmedExpansion() {
+        unschedulePrewarm();
+        if (!mIsPrewarmed) {
+            return;
+        }
+
+        Log.d(TAG, "Discarding expanded menu that was prepared ahead of time.");
+        for (FloatingTab tab : mPrewarmedTabs) {
+            mHoverView.mScreen.destroyChainedTab(tab);
+        }
+        mPrewarmedTabs.clear();
+        mHoverView.mScreen.getContentDisplay().discardPreparedContent();
+        mIsPrewarmed = false;
+    }
+
+    private void moveTabTo(float x, float y) {
+        mFloatingTab.moveTo(x, y);
     }
 
     private void closeMenu(final @Nullable Runnable onClosed) {
@@ -408,12 +591,12 @@ class HoverViewStateCollapsed extends BaseHoverViewState {
 
         @Override
         public void onDragTo(float x, float y) {
-            mOwner.moveTabTo(new Point((int) x, (int) y));
+            mOwner.moveTabTo(x, y);
         }
 
         @Override
-        public void onReleasedAt(float x, float y) {
-            mOwner.onDroppedByUser();
+        public void onReleasedAt(float x, float y, float velocityX, float velocityY) {
+            mOwner.onDroppedByUser(velocityX, velocityY);
         }
 
         @Override
@@ -16,17 +16,20 @@
 package io.mattcarroll.hover;
 
 import android.graphics.Point;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v7.util.ListUpdateCallback;
 import android.util.Log;
 import android.view.View;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * {@link HoverViewState} that operates the {@link HoverView} when it is expanded. Expanded means
@@ -49,23 +52,43 @@ class HoverViewStateExpanded extends BaseHoverViewState {
     private boolean mHasMenu = false;
     private FloatingTab mSelectedTab;
     private final List<FloatingTab> mChainedTabs = new ArrayList<>();
-    private final List<TabChain> mTabChains = new ArrayList<>();
+    private final TabRowLayout mTabRowLayout = new TabRowLayout(TAB_SPACING_IN_PX);
     private final Map<FloatingTab, HoverMenu.Section> mSections = new HashMap<>();
     private Point mDock;
     private Listener mListener;
+    private final ChainChoreographer mChoreographer = new ChainChoreographer();
+    private final Set<FloatingTab> mUnchainingTabs = new HashSet<>();
+    private Runnable mOnUnchained;
+    private boolean mIsPrefetchScheduled = false;
+
+    private final MessageQueue.IdleHandler mPrefetchIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            mIsPrefetchScheduled = false;
+            prefetchAdjacentContent();
+            return false;
+        }
+    };
 
     private final Runnable mShowTabsRunnable = new Runnable() {
         @Override
         public void run() {
+            // The selected tab may finish docking after we've given it to another state.
+            if (!mHasControl) {
+                return;
+            }
+
             mHoverView.mScreen.getShadeView().show();
             mHoverView.mScreen.getContentDisplay().selectedTabIs(mSelectedTab);
 
             HoverMenu.Section selectedSection = null != mHoverView.mSelectedSectionId
                     ? mHoverView.mMenu.getSection(mHoverView.mSelectedSectionId)
-                    : mHoverView.mMenu.getSection(0);
+                    : mHoverView.mMenu.getAppliedSection(0);
             mHoverView.mScreen.getContentDisplay().displayContent(selectedSection.getContent());
+            mHoverView.mScreen.getContentCache().onContentUsed(selectedSection);
 
             mHoverView.mScreen.getContentDisplay().setVisibility(View.VISIBLE);
+            schedulePrefetch();
 
             mHoverView.notifyListenersExpanded();
             if (null != mListener) {
@@ -84,27 +107,32 @@ class HoverViewStateExpanded extends BaseHoverViewState {
             throw new RuntimeException("Cannot take control of a FloatingTab when we already control one.");
         }
 
+        // If we're still collapsing from the last time we were expanded then finish collapsing now
+        // so that we start from a clean slate.
+        finishUnchainingTabs();
+
         mHasControl = true;
         mHoverView = hoverView;
         mHoverView.mState = this;
+        mHoverView.expandWindowToScreen();
         mHoverView.makeTouchableInWindow();
         mHoverView.requestFocus(); // For handling hardware back button presses.
         mDock = new Point(
                 mHoverView.mScreen.getWidth() - ANCHOR_TAB_X_OFFSET_IN_PX,
                 ANCHOR_TAB_Y_OFFSET_IN_PX
         );
+        mTabRowLayout.setAnchor(mDock);
         if (null != mHoverView.mMenu) {
             Log.d(TAG, "Already has menu. Expanding.");
             setMenu(mHoverView.mMenu);
         }
-
-        mHoverView.makeTouchableInWindow();
     }
 
     private void expandMenu() {
-        // If the selected tab is not already visible then we want to dock it immediately without
-        // animation.
-        boolean dockSelectedTabImmediately = null == mHoverView.mScreen.getChainedTab(mHoverView.mSelectedSectionId);
+        // If the selected tab is not already visible, or the device can't keep up with animations,
+        // then we want to dock it immediately without animation.
+        boolean dockSelectedTabImmediately = null == mHoverView.mScreen.getChainedTab(mHoverView.mSelectedSectionId)
+                || AdaptiveAnimationQuality.getInstance().isReduced();
 
         createChainedTabs();
         chainTabs(!dockSelectedTabImmediately);
@@ -125,8 +153,8 @@ class HoverViewStateExpanded extends BaseHoverViewState {
     private void createChainedTabs() {
         Log.d(TAG, "Creating chained tabs");
         if (null != mHoverView.mMenu) {
-            for (int i = 0; i < mHoverView.mMenu.getSectionCount(); ++i) {
-                HoverMenu.Section section = mHoverView.mMenu.getSection(i);
+            for (int i = 0; i < mHoverView.mMenu.getAppliedSectionCount(); ++i) {
+                HoverMenu.Section section = mHoverView.mMenu.getAppliedSection(i);
                 Log.d(TAG, "Creating tab view for: " + section.getId());
                 final FloatingTab chainedTab = mHoverView.mScreen.createChainedTab(
                         section.getId(),
@@ -143,7 +171,6 @@ class HoverViewStateExpanded extends BaseHoverViewState {
                 Log.d(TAG, "Adding tabView: " + section.getTabView() + ". Its parent is: " + section.getTabView().getParent());
                 mChainedTabs.add(chainedTab);
                 mSections.put(chainedTab, section);
-                mTabChains.add(new TabChain(chainedTab, TAB_SPACING_IN_PX));
 
                 chainedTab.setOnClickListener(new View.OnClickListener() {
                     @Override
@@ -156,43 +183,49 @@ class HoverViewStateExpanded extends BaseHoverViewState {
         }
     }
 
-    private void chainTabs(boolean animateSelectedTab) {
+    private void chainTabs(final boolean animateSelectedTab) {
         Log.d(TAG, "Chaining tabs.");
-        FloatingTab predecessorTab = mChainedTabs.get(0);
+        mChoreographer.cancel();
+        mTabRowLayout.setDocks(mChainedTabs);
+        int selectedTabIndex = getSelectedTabIndex();
 
-        // Find the selected tab.
-        int selectedTabIndex = 0;
         for (int i = 0; i < mChainedTabs.size(); ++i) {
-            if (mSelectedTab == mChainedTabs.get(i)) {
-                selectedTabIndex = i;
-                break;
-            }
+            final FloatingTab chainedTab = mChainedTabs.get(i);
+            // When the selected tab is docked without animation, so is the first tab in the row.
+            final boolean immediate = 0 == i && !animateSelectedTab;
+            mChoreographer.addCue(getAppearanceOffset(selectedTabIndex, i), new Runnable() {
+                @Override
+                public void run() {
+                    Log.d(TAG, "Moving " + chainedTab.getTabId() + " to its place in the row.");
+                    TabRowLayout.moveToDock(chainedTab, immediate);
+                }
+            });
         }
 
-        for (int i = 0; i < mChainedTabs.size(); ++i) {
-            final FloatingTab chainedTab = mChainedTabs.get(i);
-            final TabChain tabChain = mTabChains.get(i);
+        mChoreographer.play(null);
+    }
 
-            if (i == 0) {
-                // TODO: generalize the notion of a predecessor so that the 1st tab doesn't need
-                // TODO: to be treated in a special way.
-                tabChain.chainTo(mDock);
-                tabChain.tightenChain(!animateSelectedTab);
-            } else {
-                final FloatingTab currentPredecessor = predecessorTab;
-                int displayDelayInMillis = (int) (Math.abs(selectedTabIndex - i) * 100);
-                tabChain.chainTo(currentPredecessor);
-                chainedTab.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        Log.d(TAG, "Chaining " + chainedTab.getTabId() + " to " + currentPredecessor.getTabId());
-                        tabChain.tightenChain();
-                    }
-                }, displayDelayInMillis);
+    private int getSelectedTabIndex() {
+        for (int i = 0; i < mChainedTabs.size(); ++i) {
+            if (mSelectedTab == mChainedTabs.get(i)) {
+                return i;
             }
+        }
+        return 0;
+    }
 
-            predecessorTab = chainedTab;
+    // Tabs appear one after another, starting with those closest to the selected tab. The first
+    // tab anchors the chain so it appears right away.
+    private int getAppearanceOffset(int selectedTabIndex, int tabIndex) {
+        return 0 == tabIndex ? 0 : getStaggerOffset(selectedTabIndex, tabIndex);
+    }
+
+    // Tabs don't stagger when animation quality is reduced.
+    private int getStaggerOffset(int selectedTabIndex, int tabIndex) {
+        if (AdaptiveAnimationQuality.getInstance().isReduced()) {
+            return 0;
         }
+        return Math.abs(selectedTabIndex - tabIndex) * TAB_APPEARANCE_DELAY_IN_MS;
     }
 
     @Override
@@ -221,6 +254,7 @@ class HoverViewStateExpanded extends BaseHoverViewState {
         if (null != mHoverView.mMenu) {
             mHoverView.mMenu.setUpdatedCallback(null);
         }
+        unschedulePrefetch();
 
         mHasControl = false;
         mHasMenu = false;
@@ -240,52 +274,85 @@ class HoverViewStateExpanded extends BaseHoverViewState {
         });
     }
 
-    private int mTabsToUnchainCount;
-    private void unchainTabs(@Nullable final Runnable onUnChained) {
-        int selectedTabIndex = 0;
-        for (int i = 0; i < mChainedTabs.size(); ++i) {
-            if (mSelectedTab == mChainedTabs.get(i)) {
-                selectedTabIndex = i;
-                break;
-            }
-        }
+    private void unchainTabs(@Nullable Runnable onUnchained) {
+        // If the user collapsed us before all tabs appeared then play the expansion backwards from
+        // wherever it got to. Tabs that haven't appeared yet are removed right away.
+        boolean isStillExpanding = mChoreographer.isPlaying();
+        int expansionElapsedMillis = mChoreographer.getElapsedMillis();
+        mChoreographer.cancel();
 
-        int unchainCompletionTime = 0;
-        mTabsToUnchainCount = mChainedTabs.size() - 1; // -1 for selected tab
+        int selectedTabIndex = getSelectedTabIndex();
+        mOnUnchained = onUnchained;
         for (int i = 0; i < mChainedTabs.size(); ++i) {
             final FloatingTab chainedTab = mChainedTabs.get(i);
-            final TabChain tabChain = mTabChains.get(i);
 
             if (mSelectedTab != chainedTab) {
-                int displayDelayInMillis = Math.abs(selectedTabIndex - i) * TAB_APPEARANCE_DELAY_IN_MS;
-                unchainCompletionTime = Math.max(unchainCompletionTime, displayDelayInMillis);
-                Log.d(TAG, "Queue'ing chained tab disappearance with delay: " + displayDelayInMillis);
-                chainedTab.postDelayed(new Runnable() {
+                int disappearanceOffset = isStillExpanding
+                        ? Math.max(0, expansionElapsedMillis - getAppearanceOffset(selectedTabIndex, i))
+                        : getStaggerOffset(selectedTabIndex, i);
+                Log.d(TAG, "Queue'ing chained tab disappearance with delay: " + disappearanceOffset);
+                mUnchainingTabs.add(chainedTab);
+                mChoreographer.addCue(disappearanceOffset, new Runnable() {
                     @Override
                     public void run() {
-                        tabChain.unchain(new Runnable() {
-                            @Override
-                            public void run() {
-                                Log.d(TAG, "Destroying chained tab: " + chainedTab);
-                                mHoverView.mScreen.destroyChainedTab(chainedTab);
-
-                                --mTabsToUnchainCount;
-                                if (0 == mTabsToUnchainCount && null != onUnChained) {
-                                    onUnChained.run();
-                                }
-                            }
-                        });
+                        unchainTab(chainedTab);
                     }
-                }, displayDelayInMillis);
+                });
             }
         }
 
         mChainedTabs.clear();
-        mTabChains.clear();
 
-        // If there was only 1 tab, run onUnChained callback now.
-        if (0 == mTabsToUnchainCount && null != onUnChained) {
-            onUnChained.run();
+        if (mUnchainingTabs.isEmpty()) {
+            // There was only 1 tab. We're done.
+            onAllTabsUnchained();
+        } else {
+            mChoreographer.play(null);
+        }
+    }
+
+    private void unchainTab(@NonNull final FloatingTab chainedTab) {
+        if (View.VISIBLE == chainedTab.getVisibility()) {
+            chainedTab.disappear(new Runnable() {
+                @Override
+                public void run() {
+                    onTabUnchained(chainedTab);
+                }
+            });
+        } else {
+            // This tab never appeared so there's nothing to animate.
+            chainedTab.disappearImmediate();
+            onTabUnchained(chainedTab);
+        }
+    }
+
+    private void onTabUnchained(@NonNull FloatingTab chainedTab) {
+        if (mUnchainingTabs.remove(chainedTab)) {
+            Log.d(TAG, "Destroying chained tab: " + chainedTab);
+            mHoverView.mScreen.destroyChainedTab(chainedTab);
+
+            if (mUnchainingTabs.isEmpty()) {
+                onAllTabsUnchained();
+            }
+        }
+    }
+
+    private void finishUnchainingTabs() {
+        if (!mUnchainingTabs.isEmpty()) {
+            Log.d(TAG, "Finishing unchaining of " + mUnchainingTabs.size() + " tab(s) immediately.");
+            mChoreographer.cancel();
+            for (FloatingTab chainedTab : new ArrayList<>(mUnchainingTabs)) {
+                chainedTab.disappearImmediate();
+                onTabUnchained(chainedTab);
+            }
+        }
+    }
+
+    private void onAllTabsUnchained() {
+        Runnable onUnchained = mOnUnchained;
+        mOnUnchained = null;
+        if (null != onUnchained) {
+            onUnchained.run();
         }
     }
 
@@ -295,7 +362,7 @@ class HoverViewStateExpanded extends BaseHoverViewState {
         mHoverView.mMenu = menu;
 
         // Expanded menus can't be null/empty.  If it is then go to closed state.
-        if (null == mHoverView.mMenu || mHoverView.mMenu.getSectionCount() == 0) {
+        if (null == mHoverView.mMenu || mHoverView.mMenu.getAppliedSectionCount() == 0) {
             close();
             return;
         }
@@ -303,44 +370,48 @@ class HoverViewStateExpanded extends BaseHoverViewState {
         mHoverView.restoreVisualState();
 
         if (null == mHoverView.mSelectedSectionId || null == mHoverView.mMenu.getSection(mHoverView.mSelectedSectionId)) {
-            mHoverView.mSelectedSectionId = mHoverView.mMenu.getSection(0).getId();
+            mHoverView.mSelectedSectionId = mHoverView.mMenu.getAppliedSection(0).getId();
         }
 
-        mHoverView.mMenu.setUpdatedCallback(new ListUpdateCallback() {
+        mHoverView.mMenu.setUpdatedCallback(new HoverMenu.UpdateCallback() {
+            // Our tabs, as they line up with the Sections part-way through the updates.
+            private ListUpdateTracker<FloatingTab> mTabUpdates;
+
+            @Override
+            void onUpdatesBegin() {
+                mTabUpdates = new ListUpdateTracker<>(mChainedTabs);
+            }
+
+            @Override
+            void onUpdatesEnd() {
+                applyTabUpdates(mTabUpdates);
+                mTabUpdates = null;
+                // Our neighbors may have changed.
+                schedulePrefetch();
+            }
+
             @Override
             public void onInserted(int position, int count) {
                 Log.d(TAG, "onInserted. Position: " + position + ", Count: " + count);
-                int[] sectionIndices = new int[count];
-                for (int i = position; i < position + count; ++i) {
-                    sectionIndices[i - position] = i;
-                }
-                createTabsForIndices(sectionIndices);
+                mTabUpdates.onInserted(position, count);
             }
 
             @Override
             public void onRemoved(int position, int count) {
                 Log.d(TAG, "onRemoved. Position: " + position + ", Count: " + count);
-                int[] sectionIndices = new int[count];
-                for (int i = position; i < position + count; ++i) {
-                    sectionIndices[i - position] = i;
-                }
-                removeSections(sectionIndices);
+                mTabUpdates.onRemoved(position, count);
             }
 
             @Override
             public void onMoved(int fromPosition, int toPosition) {
                 Log.d(TAG, "onMoved from: " + fromPosition + ", to: " + toPosition);
-                reorderSection(fromPosition, toPosition);
+                mTabUpdates.onMoved(fromPosition, toPosition);
             }
 
             @Override
             public void onChanged(int position, int count, Object payload) {
                 Log.d(TAG, "Tab(s) changed. From: " + position + ", To: " + count);
-                int[] sectionIndices = new int[count];
-                for (int i = position; i < position + count; ++i) {
-                    sectionIndices[i - position] = i;
-                }
-                updateSections(sectionIndices);
+                mTabUpdates.onChanged(position, count, payload);
             }
         });
 
@@ -357,23 +428,63 @@ class HoverViewStateExpanded extends BaseHoverViewState {
     private void transitionDisplayFromOldMenuToNew() {
         // TODO: implement a generalized display update mechanism rather than have sprawling update
         // TODO: logic throughout this Class.
-        for (int i = 0; i < mHoverView.mMenu.getSectionCount(); ++i) {
+        for (int i = 0; i < mHoverView.mMenu.getAppliedSectionCount(); ++i) {
             if (i < mChainedTabs.size()) {
-                updateSection(i);
+                updateSection(i, null);
             } else {
                 createTabsForIndices(i);
             }
         }
 
-        if (mChainedTabs.size() > mHoverView.mMenu.getSectionCount()) {
-            int[] removedSections = new int[mChainedTabs.size() - mHoverView.mMenu.getSectionCount()];
-            for (int i = mHoverView.mMenu.getSectionCount(); i < mChainedTabs.size(); ++i) {
-                removedSections[i - mHoverView.mMenu.getSectionCount()] = i;
+        if (mChainedTabs.size() > mHoverView.mMenu.getAppliedSectionCount()) {
+            int[] removedSections = new int[mChainedTabs.size() - mHoverView.mMenu.getAppliedSectionCount()];
+            for (int i = mHoverView.mMenu.getAppliedSectionCount(); i < mChainedTabs.size(); ++i) {
+                removedSections[i - mHoverView.mMenu.getAppliedSectionCount()] = i;
             }
             removeSections(removedSections);
         }
     }
 
+    // Brings our tabs in line with the menu's Sections once all updates of a diff are in. Only
+    // then do the positions of our tabs match the positions of the Sections.  The tab row is laid
+    // out once, after all changes.
+    private void applyTabUpdates(@NonNull ListUpdateTracker<FloatingTab> tabUpdates) {
+        int oldSelectedTabIndex = mChainedTabs.indexOf(mSelectedTab);
+        for (FloatingTab removedTab : tabUpdates.getRemovedItems()) {
+            removeTab(removedTab);
+        }
+
+        List<FloatingTab> tabs = tabUpdates.getItems();
+        mChainedTabs.clear();
+        for (int i = 0; i < tabs.size(); ++i) {
+            FloatingTab tab = tabs.get(i);
+            HoverMenu.Section section = mHoverView.mMenu.getAppliedSection(i);
+            if (null == tab) {
+                Log.d(TAG, "Adding new tab. Section: " + i + ", ID: " + section.getId());
+                tab = addTab(section.getId(), section.getTabView(), i);
+                mSections.put(tab, section);
+            } else {
+                mChainedTabs.add(tab);
+                if (tabUpdates.isChanged(tab)) {
+                    Object payload = tabUpdates.getChangePayload(tab);
+                    updateSection(i, payload instanceof HoverMenu.SectionChange
+                            ? (HoverMenu.SectionChange) payload
+                            : null);
+                } else {
+                    mSections.put(tab, section);
+                }
+            }
+        }
+
+        if (tabUpdates.getRemovedItems().contains(mSelectedTab) && !mChainedTabs.isEmpty()) {
+            // Select the section before the removed one, if there is one.
+            int newSelectionIndex = Math.min(Math.max(oldSelectedTabIndex - 1, 0), mChainedTabs.size() - 1);
+            selectSection(mHoverView.mMenu.getAppliedSection(newSelectionIndex));
+        }
+
+        updateChainedPositions();
+    }
+
     @Override
     public boolean respondsToBackButton() {
         return true;
@@ -387,7 +498,7 @@ class HoverViewStateExpanded extends BaseHoverViewState {
     private void createTabsForIndices(int ... sectionIndices) {
         for (int sectionIndex : sectionIndices) {
             Log.d(TAG, "Creating tab for section at index " + sectionIndex);
-            HoverMenu.Section section = mHoverView.mMenu.getSection(sectionIndex);
+            HoverMenu.Section section = mHoverView.mMenu.getAppliedSection(sectionIndex);
             Log.d(TAG, "Adding new tab. Section: " + sectionIndex + ", ID: " + section.getId());
             FloatingTab newTab = addTab(section.getId(), section.getTabView(), sectionIndex);
             mSections.put(newTab, section);
@@ -407,10 +518,8 @@ class HoverViewStateExpanded extends BaseHoverViewState {
         if (mChainedTabs.size() <= position) {
             // This section was appended to the end.
             mChainedTabs.add(newTab);
-            mTabChains.add(new TabChain(newTab, TAB_SPACING_IN_PX));
         } else {
             mChainedTabs.add(position, newTab);
-            mTabChains.add(position, new TabChain(newTab, TAB_SPACING_IN_PX));
         }
 
         newTab.setOnClickListener(new View.OnClickListener() {
@@ -423,37 +532,28 @@ class HoverViewStateExpanded extends BaseHoverViewState {
         return newTab;
     }
 
-    private void reorderSection(int fromPosition, int toPosition) {
-        Log.d(TAG, "Tab moved. From: " + fromPosition + ", To: " + toPosition);
-        FloatingTab chainedTab = mChainedTabs.remove(fromPosition);
-        mChainedTabs.add(toPosition, chainedTab);
-        TabChain tabChain = mTabChains.remove(fromPosition);
-        mTabChains.add(toPosition, tabChain);
-
-        updateChainedPositions();
-    }
-
-    private void updateSections(int ... sectionIndices) {
-        Log.d(TAG, "Tab(s) changed: " + Arrays.toString(sectionIndices));
-        for (int sectionIndex : sectionIndices) {
-            updateSection(sectionIndex);
-        }
-    }
-
-    private void updateSection(int sectionIndex) {
-        HoverMenu.Section section = mHoverView.mMenu.getSection(sectionIndex);
+    // Brings the tab and, if selected, the content of the given section up to date.  If a
+    // {@code change} is given then only the parts it names are touched.
+    private void updateSection(int sectionIndex, @Nullable HoverMenu.SectionChange change) {
+        HoverMenu.Section section = mHoverView.mMenu.getAppliedSection(sectionIndex);
         if (null == section) {
             Log.e(TAG, "Tried to update section " + sectionIndex + " but could not locate the corresponding Section.");
             return;
         }
 
-        // Update Tab View
         FloatingTab chainedTab = mChainedTabs.get(sectionIndex);
-        chainedTab.setTabView(section.getTabView());
+        mSections.put(chainedTab, section);
+
+        // Update Tab View
+        if (null == change || change.isTabViewChanged()) {
+            chainedTab.setTabView(section.getTabView());
+        }
 
         // Update Section Content if this Section is currently selected.
-        if (mHoverView.mSelectedSectionId.equals(mHoverView.mMenu.getSection(sectionIndex).getId())) {
+        if ((null == change || change.isContentChanged())
+                && mHoverView.mSelectedSectionId.equals(section.getId())) {
             mHoverView.mScreen.getContentDisplay().displayContent(section.getContent());
+            mHoverView.mScreen.getContentCache().onContentUsed(section);
         }
     }
 
@@ -471,45 +571,32 @@ class HoverViewStateExpanded extends BaseHoverViewState {
 
     private void removeSection(int sectionIndex) {
         final FloatingTab chainedTab = mChainedTabs.remove(sectionIndex);
-        TabChain tabChain = mTabChains.remove(sectionIndex);
-        tabChain.unchain(new Runnable() {
+        HoverMenu.Section removedSection = mSections.get(chainedTab);
+        removeTab(chainedTab);
+
+        // If the removed section was the selected section then select a new section.
+        if (removedSection.getId().equals(mHoverView.mSelectedSectionId)) {
+            int newSelectionIndex = Math.min(Math.max(sectionIndex - 1, 0), mHoverView.mMenu.getAppliedSectionCount() - 1);
+            selectSection(mHoverView.mMenu.getAppliedSection(newSelectionIndex));
+        }
+    }
+
+    // Makes the given tab, which is no longer in mChainedTabs, disappear and destroys it.
+    private void removeTab(@NonNull final FloatingTab chainedTab) {
+        chainedTab.disappear(new Runnable() {
             @Override
             public void run() {
                 mHoverView.mScreen.destroyChainedTab(chainedTab);
             }
         });
 
-        // If the removed section was the selected section then select a new section.
-        HoverMenu.Section removedSection = mSections.get(chainedTab);
-        if (removedSection.getId().equals(mHoverView.mSelectedSectionId)) {
-            int newSelectionIndex = 0;
-            if (sectionIndex - 1 < mHoverView.mMenu.getSectionCount() - 1) {
-                newSelectionIndex = sectionIndex - 1;
-            } else {
-                newSelectionIndex = mHoverView.mMenu.getSectionCount() - 1;
-            }
-
-            selectSection(mHoverView.mMenu.getSection(newSelectionIndex));
-        }
-
         // TODO: This cleanup should be centralized.
         chainedTab.setOnClickListener(null);
         mSections.remove(chainedTab);
     }
 
     private void updateChainedPositions() {
-        TabChain firstChain = mTabChains.get(0);
-        firstChain.chainTo(mDock);
-        firstChain.tightenChain();
-
-        FloatingTab predecessor = mChainedTabs.get(0);
-        for (int i = 1; i < mChainedTabs.size(); ++i) {
-            FloatingTab chainedTab = mChainedTabs.get(i);
-            TabChain tabChain = mTabChains.get(i);
-            tabChain.chainTo(predecessor);
-            tabChain.tightenChain();
-            predecessor = chainedTab;
-        }
+        mTabRowLayout.layout(mChainedTabs);
     }
 
     private void onTabSelected(@NonNull FloatingTab selectedTab) {
@@ -529,6 +616,66 @@ class HoverViewStateExpanded extends BaseHoverViewState {
         ContentDisplay contentDisplay = mHoverView.mScreen.getContentDisplay();
         contentDisplay.selectedTabIs(mSelectedTab);
         contentDisplay.displayContent(section.getContent());
+        mHoverView.mScreen.getContentCache().onContentUsed(section);
+        schedulePrefetch();
+    }
+
+    private void schedulePrefetch() {
+        if (mHoverView.mContentPrefetchDistance > 0 && !mIsPrefetchScheduled) {
+            mIsPrefetchScheduled = true;
+            Looper.myQueue().addIdleHandler(mPrefetchIdleHandler);
+        }
+    }
+
+    private void unschedulePrefetch() {
+        if (mIsPrefetchScheduled) {
+            mIsPrefetchScheduled = false;
+            Looper.myQueue().removeIdleHandler(mPrefetchIdleHandler);
+        }
+    }
+
+    // Builds the Content of the sections next to the selected section, nearest first, so that the
+    // user's most likely next selections display quickly.  Lazily created Content that we have to
+    // create counts towards the ContentCache's budget, which we leave room in for the displayed
+    // Content.  Content that's already in the cache doesn't.
+    private void prefetchAdjacentContent() {
+        if (!mHasControl || null == mHoverView.mMenu || null == mHoverView.mSelectedSectionId) {
+            return;
+        }
+        int selectedIndex = mHoverView.mMenu.getSectionIndex(mHoverView.mSelectedSectionId);
+        if (selectedIndex < 0) {
+            return;
+        }
+
+        ContentCache contentCache = mHoverView.mScreen.getContentCache();
+        int budget = contentCache.getMaxCachedContentCount() - 1;
+        List<HoverMenu.Section> prefetchedSections = new ArrayList<>();
+        for (int distance = 1; distance <= mHoverView.mContentPrefetchDistance; ++distance) {
+            // The neighbor after the selected section, then the one before it.
+            for (int side = 0; side < 2; ++side) {
+                int index = 0 == side ? selectedIndex + distance : selectedIndex - distance;
+                if (index < 0 || index >= mHoverView.mMenu.getAppliedSectionCount()) {
+                    continue;
+                }
+                HoverMenu.Section section = mHoverView.mMenu.getAppliedSection(index);
+                CachedContent cachedContent = section.getCachedContent();
+                if (null != cachedContent && !cachedContent.isCreated()) {
+                    if (budget <= 0) {
+                        continue;
+                    }
+                    --budget;
+                }
+                mHoverView.mScreen.getContentDisplay().prefetchContent(section.getContent());
+                prefetchedSections.add(section);
+            }
+        }
+
+        // Record use from farthest to nearest so that the nearest neighbors, and then the
+        // selected section, are the last to be released.
+        for (int i = prefetchedSections.size() - 1; i >= 0; --i) {
+            contentCache.onContentUsed(prefetchedSections.get(i));
+        }
+        contentCache.onContentUsed(mHoverView.mMenu.getAppliedSection(selectedIndex));
     }
 
     // TODO: do we need this?
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follows the updates of one diff through a working copy of a list of items, e.g., the tabs that
+ * display a {@link HoverMenu}'s {@code Section}s, so that each update can be traced back to the
+ * items it refers to.
+ *
+ * {@code DiffUtil} reports every update relative to the list as it is at that point of the
+ * dispatch, i.e., with all earlier updates applied, and not relative to the old or the new list.
+ * For example, going from [A, B, C] to [B, C, D] may be dispatched as an insert at position 3
+ * followed by a removal at position 0.  Reading the new list at those positions mid-dispatch finds
+ * the wrong items, or none at all.  Once all updates are applied, the working copy lines up with
+ * the new list.  Inserted positions hold null.
+ *
+ * @param <T> the items, compared with {@link Object#equals(Object)}
+ */
+class ListUpdateTracker<T> implements ListUpdateCallback {
+
+    private final List<T> mItems;
+    private final List<T> mRemovedItems = new ArrayList<>();
+    private final Map<T, Object> mChangedItems = new HashMap<>();
+
+    /**
+     * @param oldItems the items that line up with the list before the diff, which are copied
+     */
+    ListUpdateTracker(@NonNull List<T> oldItems) {
+        mItems = new ArrayList<>(oldItems);
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+        for (int i = 0; i < count; ++i) {
+            mItems.add(position, null);
+        }
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        for (int i = 0; i < count; ++i) {
+            T removedItem = mItems.remove(position);
+            if (null != removedItem) {
+                mRemovedItems.add(removedItem);
+                mChangedItems.remove(removedItem);
+            }
+        }
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        mItems.add(toPosition, mItems.remove(fromPosition));
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+        for (int i = position; i < position + count; ++i) {
+            T changedItem = mItems.get(i);
+            if (null != changedItem) {
+                mChangedItems.put(changedItem, payload);
+            }
+        }
+    }
+
+    /**
+     * Returns the items that line up with the list as updated so far, with null at every inserted
+     * position.  After the last update this lines up with the new list.
+     */
+    @NonNull
+    List<T> getItems() {
+        return mItems;
+    }
+
+    /**
+     * Returns the old items that were removed, in the order they were removed.
+     */
+    @NonNull
+    List<T> getRemovedItems() {
+        return mRemovedItems;
+    }
+
+    /**
+     * Returns true if the given item, which wasn't removed, was reported as changed.
+     */
+    boolean isChanged(@NonNull T item) {
+        return mChangedItems.containsKey(item);
+    }
+
+    /**
+     * Returns the payload that came with the change of the given item, if any.
+     */
+    @Nullable
+    Object getChangePayload(@NonNull T item) {
+        return mChangedItems.get(item);
+    }
+}
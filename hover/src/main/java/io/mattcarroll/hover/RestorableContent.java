@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+/**
+ * {@link Content} that can save and restore its state.  {@code Content} created by a
+ * {@link ContentFactory} may be released while it's hidden to save memory, and created again when
+ * it's shown.  {@code RestorableContent} is given the chance to save its state before it's
+ * released, and gets that state back after it's created again.
+ */
+public interface RestorableContent extends Content {
+
+    /**
+     * Called before this content is released.  Put anything needed to bring back the current
+     * state of this content into {@code outState}.
+     *
+     * @param outState where to save state
+     */
+    void saveState(@NonNull Bundle outState);
+
+    /**
+     * Called after this content was created to replace content that was released, before it's
+     * shown.
+     *
+     * @param savedState the state saved by the released content
+     */
+    void restoreState(@NonNull Bundle savedState);
+
+}
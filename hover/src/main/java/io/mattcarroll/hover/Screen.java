@@ -22,7 +22,9 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.WindowManager;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static android.view.View.GONE;
@@ -34,13 +36,22 @@ import static android.view.View.GONE;
 class Screen {
 
     private static final String TAG = "Screen";
+    private static final int DEFAULT_MAX_POOLED_TAB_COUNT = 8;
 
     private ViewGroup mContainer;
     private ContentDisplay mContentDisplay;
+    private ContentCache mContentCache;
     private ExitView mExitView;
     private ShadeView mShadeView;
     private Map<String, FloatingTab> mTabs = new HashMap<>();
+    // Destroyed tabs that remain attached to the container, hidden, so that they can be reused.
+    private final List<FloatingTab> mTabPool = new ArrayList<>();
+    private int mMaxPooledTabCount = DEFAULT_MAX_POOLED_TAB_COUNT;
     private boolean mIsDebugMode = false;
+    private boolean mIsTabSnapshotEnabled = false;
+    private boolean mIsSizeLocked = false;
+    private int mLockedWidth;
+    private int mLockedHeight;
 
     Screen(@NonNull ViewGroup hoverMenuContainer) {
         mContainer = hoverMenuContainer;
@@ -62,6 +73,7 @@ class Screen {
         mContentDisplay = new ContentDisplay(mContainer.getContext());
         mContainer.addView(mContentDisplay);
         mContentDisplay.setVisibility(GONE);
+        mContentCache = new ContentCache(mContentDisplay);
     }
 
     public void enableDrugMode(boolean debugMode) {
@@ -73,12 +85,37 @@ class Screen {
         }
     }
 
+    public void enableTabSnapshots(boolean enabled) {
+        mIsTabSnapshotEnabled = enabled;
+        for (FloatingTab tab : mTabs.values()) {
+            tab.enableSnapshots(enabled);
+        }
+        for (FloatingTab tab : mTabPool) {
+            tab.enableSnapshots(enabled);
+        }
+    }
+
     public int getWidth() {
-        return mContainer.getWidth();
+        return mIsSizeLocked ? mLockedWidth : mContainer.getWidth();
     }
 
     public int getHeight() {
-        return mContainer.getHeight();
+        return mIsSizeLocked ? mLockedHeight : mContainer.getHeight();
+    }
+
+    /**
+     * Freezes the reported size of this {@code Screen} at the container's current size.  Used when
+     * the container temporarily shrinks, e.g., when a collapsed {@link HoverView} shrinks its
+     * {@code Window} down to the size of its tab.
+     */
+    void lockSize() {
+        mLockedWidth = mContainer.getWidth();
+        mLockedHeight = mContainer.getHeight();
+        mIsSizeLocked = true;
+    }
+
+    void unlockSize() {
+        mIsSizeLocked = false;
     }
 
     @NonNull
@@ -96,11 +133,19 @@ class Screen {
         if (mTabs.containsKey(tabId)) {
             return mTabs.get(tabId);
         } else {
-            Log.d(TAG, "Creating new tab with ID: " + tabId);
-            FloatingTab chainedTab = new FloatingTab(mContainer.getContext(), tabId);
+            FloatingTab chainedTab;
+            if (!mTabPool.isEmpty()) {
+                Log.d(TAG, "Reusing pooled tab for ID: " + tabId);
+                chainedTab = mTabPool.remove(mTabPool.size() - 1);
+                chainedTab.reset(tabId);
+            } else {
+                Log.d(TAG, "Creating new tab with ID: " + tabId);
+                chainedTab = new FloatingTab(mContainer.getContext(), tabId);
+                mContainer.addView(chainedTab);
+            }
             chainedTab.setTabView(tabView);
             chainedTab.enableDebugMode(mIsDebugMode);
-            mContainer.addView(chainedTab);
+            chainedTab.enableSnapshots(mIsTabSnapshotEnabled);
             mTabs.put(tabId, chainedTab);
             return chainedTab;
         }
@@ -118,15 +163,51 @@ class Screen {
     }
 
     public void destroyChainedTab(@NonNull FloatingTab chainedTab) {
+        if (mTabs.get(chainedTab.getTabId()) != chainedTab) {
+            Log.w(TAG, "Tried to destroy a tab that was already destroyed: " + chainedTab.getTabId());
+            return;
+        }
+
         mTabs.remove(chainedTab.getTabId());
         chainedTab.setTabView(null);
-        mContainer.removeView(chainedTab);
+        if (mTabPool.size() < mMaxPooledTabCount) {
+            chainedTab.disappearImmediate();
+            mTabPool.add(chainedTab);
+        } else {
+            mContainer.removeView(chainedTab);
+        }
+    }
+
+    /**
+     * Sets the maximum number of destroyed tabs that are kept around to be reused by
+     * {@link #createChainedTab(String, View)}.  Pooled tabs beyond the new maximum are released.
+     */
+    public void setMaxPooledTabCount(int maxPooledTabCount) {
+        mMaxPooledTabCount = maxPooledTabCount;
+        while (mTabPool.size() > mMaxPooledTabCount) {
+            mContainer.removeView(mTabPool.remove(mTabPool.size() - 1));
+        }
+    }
+
+    /**
+     * Releases all pooled tabs, e.g., when memory is low.
+     */
+    public void trimTabPool() {
+        Log.d(TAG, "Releasing " + mTabPool.size() + " pooled tab(s).");
+        for (FloatingTab pooledTab : mTabPool) {
+            mContainer.removeView(pooledTab);
+        }
+        mTabPool.clear();
     }
 
     public ContentDisplay getContentDisplay() {
         return mContentDisplay;
     }
 
+    public ContentCache getContentCache() {
+        return mContentCache;
+    }
+
     public ExitView getExitView() {
         return mExitView;
     }
@@ -16,6 +16,7 @@
 package io.mattcarroll.hover;
 
 import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.support.annotation.NonNull;
@@ -32,6 +33,21 @@ class ShadeView extends FrameLayout {
 
     private static final int FADE_DURATION = 250;
 
+    // Keeps us in a hardware layer while we fade.
+    private final Animator.AnimatorListener mLayerListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationStart(Animator animation) {
+            HardwareLayerPolicy.getInstance().onAnimationStart(ShadeView.this);
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            HardwareLayerPolicy.getInstance().onAnimationEnd(ShadeView.this);
+        }
+    };
+
+    private Animator mFade;
+
     public ShadeView(@NonNull Context context) {
         this(context, null);
     }
@@ -46,9 +62,18 @@ class ShadeView extends FrameLayout {
     }
 
     public void show() {
+        cancelFade();
+        if (AdaptiveAnimationQuality.getInstance().isReduced()) {
+            setAlpha(1.0f);
+            setVisibility(VISIBLE);
+            return;
+        }
+
         ObjectAnimator fadeOut = ObjectAnimator.ofFloat(this, "alpha", 1.0f);
         fadeOut.setDuration(FADE_DURATION);
+        fadeOut.addListener(mLayerListener);
         fadeOut.start();
+        mFade = fadeOut;
 
         setVisibility(VISIBLE);
     }
@@ -58,9 +83,18 @@ class ShadeView extends FrameLayout {
     }
 
     public void hide() {
+        cancelFade();
+        if (AdaptiveAnimationQuality.getInstance().isReduced()) {
+            setAlpha(0.0f);
+            setVisibility(GONE);
+            return;
+        }
+
         ObjectAnimator fadeOut = ObjectAnimator.ofFloat(this, "alpha", 0.0f);
         fadeOut.setDuration(FADE_DURATION);
+        fadeOut.addListener(mLayerListener);
         fadeOut.start();
+        mFade = fadeOut;
 
         fadeOut.addListener(new Animator.AnimatorListener() {
             @Override
@@ -82,4 +116,13 @@ class ShadeView extends FrameLayout {
     public void hideImmediate() {
         setVisibility(GONE);
     }
+
+    // Stops a fade that's still running so that it doesn't undo what we do next.
+    private void cancelFade() {
+        if (null != mFade) {
+            Animator fade = mFade;
+            mFade = null;
+            fade.cancel();
+        }
+    }
 }
@@ -19,26 +19,25 @@ import android.graphics.Point;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 import android.util.Log;
-import android.view.ViewGroup;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 /**
- * {@link Dock} that always positions itself either on the left or right side of its container. A
- * {@code SideDock} insets itself slightly from the edge of its container based on a proportion of
+ * {@link Dock} that always positions itself either on the left or right side of its {@link Screen}. A
+ * {@code SideDock} insets itself slightly from the edge of its {@code Screen} based on a proportion of
  * a tab's size.
  */
 public class SideDock extends Dock {
 
     private static final String TAG = "SideDock";
 
-    private ViewGroup mContainerView;
+    private Screen mScreen;
     private int mTabSize;
     private SidePosition mSidePosition;
 
-    SideDock(@NonNull ViewGroup containerView, int tabSize, @NonNull SidePosition sidePosition) {
-        mContainerView = containerView;
+    SideDock(@NonNull Screen screen, int tabSize, @NonNull SidePosition sidePosition) {
+        mScreen = screen;
         mTabSize = tabSize;
         mSidePosition = sidePosition;
     }
@@ -46,7 +45,7 @@ public class SideDock extends Dock {
     @NonNull
     @Override
     public Point position() {
-        Point screenSize = new Point(mContainerView.getWidth(), mContainerView.getHeight());
+        Point screenSize = new Point(mScreen.getWidth(), mScreen.getHeight());
         return mSidePosition.calculateDockPosition(screenSize, mTabSize);
     }
 
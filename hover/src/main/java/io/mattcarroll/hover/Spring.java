@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+/**
+ * A damped spring that pulls a single value, e.g., an x-coordinate or a scale, towards a target.
+ *
+ * A {@code Spring} keeps its value and velocity when its target changes, so an animation can be
+ * retargeted mid-flight without any jump in position or speed.  A {@code Spring} is stepped
+ * forward in time by whoever owns it, typically from a {@link SpringEngine.Animation}.
+ */
+class Spring {
+
+    // Integrate in small steps so that the spring remains stable when frames are dropped.
+    private static final float MAX_STEP_IN_SECONDS = 0.004f;
+
+    private final float mStiffness; // 1/s^2
+    private final float mDamping; // 1/s
+    private final float mRestDistance;
+    private final float mRestVelocity;
+    private float mValue;
+    private float mVelocity; // units per second
+    private float mTarget;
+
+    /**
+     * @param stiffness how strongly the spring pulls towards its target, higher is faster
+     * @param dampingRatio 1 for no overshoot, less than 1 to overshoot the target before settling
+     * @param restDistance the spring is at rest when it's closer than this to its target...
+     * @param restVelocity ...and slower than this (per second)
+     */
+    Spring(float stiffness, float dampingRatio, float restDistance, float restVelocity) {
+        mStiffness = stiffness;
+        mDamping = 2 * dampingRatio * (float) Math.sqrt(stiffness);
+        mRestDistance = restDistance;
+        mRestVelocity = restVelocity;
+    }
+
+    public float getValue() {
+        return mValue;
+    }
+
+    /**
+     * Jumps to the given value and stops moving.
+     */
+    public void setValue(float value) {
+        mValue = value;
+        mVelocity = 0;
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    public void setVelocity(float velocity) {
+        mVelocity = velocity;
+    }
+
+    public float getTarget() {
+        return mTarget;
+    }
+
+    public void setTarget(float target) {
+        mTarget = target;
+    }
+
+    public boolean isAtRest() {
+        return Math.abs(mTarget - mValue) < mRestDistance && Math.abs(mVelocity) < mRestVelocity;
+    }
+
+    /**
+     * Moves this spring forward in time.  Once the spring comes to rest its value snaps to its
+     * target.
+     * @param elapsedSeconds time since the last step
+     * @return true if the spring is still moving, false if it's at rest
+     */
+    public boolean step(float elapsedSeconds) {
+        while (elapsedSeconds > 0) {
+            float step = Math.min(elapsedSeconds, MAX_STEP_IN_SECONDS);
+            mVelocity += (mStiffness * (mTarget - mValue) - mDamping * mVelocity) * step;
+            mValue += mVelocity * step;
+            elapsedSeconds -= step;
+        }
+
+        if (isAtRest()) {
+            setValue(mTarget);
+            return false;
+        } else {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.os.Build;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs every {@link Animation} in Hover from a single {@link Choreographer} frame callback.  Before
+ * API 16, which has no {@code Choreographer}, frames are posted to a {@link Handler} instead.
+ *
+ * Every frame, each running {@code Animation} is told how much time has passed since the previous
+ * frame so that it can step its {@link Spring}s.  The {@code SpringEngine} only listens for frames
+ * while at least one {@code Animation} is running, and it does not allocate per frame.  Frame
+ * intervals are reported to {@link AdaptiveAnimationQuality}.
+ *
+ * A {@code SpringEngine} must only be used from the main thread.
+ */
+class SpringEngine {
+
+    private static final float DEFAULT_FRAME_TIME_IN_SECONDS = 0.016f;
+    private static final float MAX_FRAME_TIME_IN_SECONDS = 0.1f;
+    private static final long FALLBACK_FRAME_INTERVAL_IN_MILLIS = 16;
+
+    private static SpringEngine sInstance;
+
+    @NonNull
+    public static SpringEngine getInstance() {
+        if (null == sInstance) {
+            sInstance = new SpringEngine();
+        }
+        return sInstance;
+    }
+
+    private final List<Animation> mAnimations = new ArrayList<>();
+    // Copy of mAnimations that is stepped each frame so that Animations can start and stop other
+    // Animations from within a frame.  Reused across frames to avoid allocation.
+    private Animation[] mFrameAnimations = new Animation[8];
+    private boolean mIsFrameCallbackPosted = false;
+    private long mLastFrameTimeNanos;
+
+    // Only created on API 16+.
+    private Choreographer.FrameCallback mFrameCallback;
+    // Only used before API 16.
+    private Handler mFallbackHandler;
+    private final Runnable mFallbackFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mIsFrameCallbackPosted = false;
+            onFrame(System.nanoTime());
+        }
+    };
+
+    private SpringEngine() { }
+
+    /**
+     * Starts stepping the given {@code animation} every frame until it reports that it's finished
+     * or it's stopped.  Starting an {@code Animation} that's already running has no effect.
+     */
+    public void start(@NonNull Animation animation) {
+        if (!mAnimations.contains(animation)) {
+            mAnimations.add(animation);
+        }
+        postFrameCallback();
+    }
+
+    public void stop(@NonNull Animation animation) {
+        mAnimations.remove(animation);
+        if (mAnimations.isEmpty() && mIsFrameCallbackPosted) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            } else {
+                mFallbackHandler.removeCallbacks(mFallbackFrameRunnable);
+            }
+            mIsFrameCallbackPosted = false;
+            mLastFrameTimeNanos = 0;
+        }
+    }
+
+    public boolean isRunning(@NonNull Animation animation) {
+        return mAnimations.contains(animation);
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        float elapsedSeconds;
+        if (0 == mLastFrameTimeNanos) {
+            elapsedSeconds = DEFAULT_FRAME_TIME_IN_SECONDS;
+        } else {
+            long frameIntervalNanos = frameTimeNanos - mLastFrameTimeNanos;
+            AdaptiveAnimationQuality.getInstance().onFrame(frameIntervalNanos);
+            elapsedSeconds = Math.min(MAX_FRAME_TIME_IN_SECONDS, frameIntervalNanos / 1e9f);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+
+        int animationCount = mAnimations.size();
+        if (mFrameAnimations.length < animationCount) {
+            mFrameAnimations = new Animation[animationCount * 2];
+        }
+        mAnimations.toArray(mFrameAnimations);
+
+        for (int i = 0; i < animationCount; ++i) {
+            Animation animation = mFrameAnimations[i];
+            mFrameAnimations[i] = null;
+            // An earlier Animation may have stopped this one during this frame.
+            if (mAnimations.contains(animation) && !animation.onAnimationFrame(elapsedSeconds)) {
+                mAnimations.remove(animation);
+            }
+        }
+
+        if (mAnimations.isEmpty()) {
+            mLastFrameTimeNanos = 0;
+        } else {
+            postFrameCallback();
+        }
+    }
+
+    private void postFrameCallback() {
+        if (mIsFrameCallbackPosted) {
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (null == mFrameCallback) {
+                mFrameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        mIsFrameCallbackPosted = false;
+                        onFrame(frameTimeNanos);
+                    }
+                };
+            }
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        } else {
+            if (null == mFallbackHandler) {
+                mFallbackHandler = new Handler();
+            }
+            mFallbackHandler.postDelayed(mFallbackFrameRunnable, FALLBACK_FRAME_INTERVAL_IN_MILLIS);
+        }
+        mIsFrameCallbackPosted = true;
+    }
+
+    /**
+     * Something that animates over time, e.g., a {@link FloatingTab} moving to its dock.
+     */
+    interface Animation {
+        /**
+         * Steps this {@code Animation} forward in time.
+         * @param elapsedSeconds time since the previous frame
+         * @return true to keep running, false if this {@code Animation} is finished
+         */
+        boolean onAnimationFrame(float elapsedSeconds);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.graphics.Point;
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import java.util.List;
+
+/**
+ * Lays out a row of {@link FloatingTab}s.  The first tab is docked at an anchor position and each
+ * following tab is docked a fixed distance to the left of the one before it.
+ *
+ * Every tab's dock is computed directly from the anchor and the tab's index, so laying out a row
+ * of N tabs is a single O(N) pass no matter how the row changed, e.g., tabs were inserted,
+ * removed, or reordered.
+ */
+class TabRowLayout {
+
+    private static final String TAG = "TabRowLayout";
+
+    private final int mTabSpacingInPx;
+    private Point mAnchor;
+
+    TabRowLayout(int tabSpacingInPx) {
+        mTabSpacingInPx = tabSpacingInPx;
+    }
+
+    /**
+     * Sets the position of the first tab in the row.
+     */
+    public void setAnchor(@NonNull Point anchor) {
+        mAnchor = anchor;
+    }
+
+    @NonNull
+    public Point getTabPosition(int index) {
+        return new Point(mAnchor.x - (index * mTabSpacingInPx), mAnchor.y);
+    }
+
+    /**
+     * Gives every tab in {@code tabs} its dock within this row, without moving any of them.
+     */
+    public void setDocks(@NonNull List<FloatingTab> tabs) {
+        for (int i = 0; i < tabs.size(); ++i) {
+            tabs.get(i).setDock(new PositionDock(getTabPosition(i)));
+        }
+    }
+
+    /**
+     * Gives every tab in {@code tabs} its dock within this row and sends each tab to its dock.
+     */
+    public void layout(@NonNull List<FloatingTab> tabs) {
+        setDocks(tabs);
+        for (int i = 0; i < tabs.size(); ++i) {
+            moveToDock(tabs.get(i), false);
+        }
+    }
+
+    /**
+     * Sends the given tab to its dock.  A visible tab slides to its dock, unless
+     * {@code immediate} is true.  A tab that's already sliding to a dock was re-aimed by
+     * {@link FloatingTab#setDock(Dock)} and keeps going.  A tab that isn't visible appears in its
+     * dock.
+     */
+    public static void moveToDock(@NonNull FloatingTab tab, boolean immediate) {
+        if (View.VISIBLE == tab.getVisibility()) {
+            if (immediate) {
+                tab.dockImmediately();
+            } else if (!tab.isDocking()) {
+                tab.dock();
+            }
+        } else {
+            tab.moveTo(tab.getDockPosition());
+            tab.appear(null);
+        }
+    }
+}
@@ -38,15 +38,36 @@ public class TabSelectorView extends View {
     private static final int DEFAULT_SELECTOR_WIDTH_DP = 24;
     private static final int DEFAULT_SELECTOR_HEIGHT_DP = 16;
 
+    // The selector slides to the selected tab without overshooting it.
+    private static final float SELECTOR_SPRING_STIFFNESS = 600f; // 1/s^2
+    private static final float SELECTOR_SPRING_DAMPING_RATIO = 1.0f;
+    private static final float SELECTOR_REST_DISTANCE = 0.5f; // px
+    private static final float SELECTOR_REST_VELOCITY = 10f; // px per second
+
     private int mSelectorWidthPx;
     private int mSelectorHeightPx;
     private int mDesiredSelectorCenterLocationPx; // the selector position that the client wants
-    private int mLeftMostSelectorLocationPx; // based on mLeftBoundOffset and mSelectorWidthPx;
-    private int mRightMostSelectorLocationPx; // based on mRightBoundOffsetPx and mSelectorWidthPx;
 
-    private Path mSelectorPaintPath;
+    // Triangle with its top at (0, 0).  Built once, positioned with Canvas.translate() when drawn.
+    private final Path mSelectorPaintPath = new Path();
     private Paint mSelectorPaint;
 
+    // Slides the selector between positions.  Stepped by the same frame clock as the tabs.
+    private final Spring mSelectorSpring = new Spring(
+            SELECTOR_SPRING_STIFFNESS,
+            SELECTOR_SPRING_DAMPING_RATIO,
+            SELECTOR_REST_DISTANCE,
+            SELECTOR_REST_VELOCITY
+    );
+    private final SpringEngine.Animation mSelectorAnimation = new SpringEngine.Animation() {
+        @Override
+        public boolean onAnimationFrame(float elapsedSeconds) {
+            boolean isMoving = mSelectorSpring.step(elapsedSeconds);
+            invalidate();
+            return isMoving;
+        }
+    };
+
     public TabSelectorView(Context context) {
         this(context, null);
     }
@@ -59,6 +80,7 @@ public class TabSelectorView extends View {
     private void init() {
         mSelectorWidthPx = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, DEFAULT_SELECTOR_WIDTH_DP, getResources().getDisplayMetrics());
         mSelectorHeightPx = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, DEFAULT_SELECTOR_HEIGHT_DP, getResources().getDisplayMetrics());
+        buildSelectorPath();
         setSelectorPosition(mSelectorWidthPx / 2);
 
         mSelectorPaint = new Paint();
@@ -73,54 +95,70 @@ public class TabSelectorView extends View {
 
     /**
      * Sets the pixel position of the center of the selector icon. The position given will be
-     * clamped to available space in this View.
+     * clamped to available space in this View.  If the selector is sliding, it slides to the given
+     * position instead.
+     *
+     * This is called on every frame while the selected tab moves, so it must not allocate.
      *
      * @param position horizontal pixel position
      */
     public void setSelectorPosition(int position) {
         mDesiredSelectorCenterLocationPx = position;
-        invalidateSelectorPath();
+        mSelectorSpring.setTarget(position);
+        if (!SpringEngine.getInstance().isRunning(mSelectorAnimation)) {
+            mSelectorSpring.setValue(position);
+        }
+        invalidate();
     }
 
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), mSelectorHeightPx);
+    /**
+     * Slides the selector icon from where it is to the given pixel position, e.g., when a different
+     * tab is selected.
+     *
+     * @param position horizontal pixel position
+     */
+    public void slideSelectorTo(int position) {
+        mDesiredSelectorCenterLocationPx = position;
+        mSelectorSpring.setTarget(position);
+        SpringEngine.getInstance().start(mSelectorAnimation);
     }
 
     @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        super.onLayout(changed, left, top, right, bottom);
+    protected void onDetachedFromWindow() {
+        SpringEngine.getInstance().stop(mSelectorAnimation);
+        mSelectorSpring.setValue(mDesiredSelectorCenterLocationPx);
+        super.onDetachedFromWindow();
+    }
 
-        if (changed) {
-            invalidateSelectorPath();
-        }
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), mSelectorHeightPx);
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
+        int selectorCenterLocationPx = clampSelectorPosition(Math.round(mSelectorSpring.getValue()));
+        canvas.save();
+        canvas.translate(selectorCenterLocationPx, 0);
         canvas.drawPath(mSelectorPaintPath, mSelectorPaint);
+        canvas.restore();
     }
 
-    private void invalidateSelectorPath() {
-        mLeftMostSelectorLocationPx = getPaddingLeft() + (mSelectorWidthPx / 2);
-        mRightMostSelectorLocationPx = getWidth() - getPaddingRight() - (mSelectorWidthPx / 2);
-
-        int selectorCenterLocationPx = clampSelectorPosition(mDesiredSelectorCenterLocationPx);
-
-        mSelectorPaintPath = new Path();
-        mSelectorPaintPath.moveTo(selectorCenterLocationPx, 0); // top of triangle
-        mSelectorPaintPath.lineTo(selectorCenterLocationPx + (mSelectorWidthPx / 2), mSelectorHeightPx); // bottom right of triangle
-        mSelectorPaintPath.lineTo(selectorCenterLocationPx - (mSelectorWidthPx / 2), mSelectorHeightPx); // bottom left of triangle
-        mSelectorPaintPath.lineTo(selectorCenterLocationPx, 0); // back to origin
-
-        invalidate();
+    private void buildSelectorPath() {
+        mSelectorPaintPath.reset();
+        mSelectorPaintPath.moveTo(0, 0); // top of triangle
+        mSelectorPaintPath.lineTo(mSelectorWidthPx / 2, mSelectorHeightPx); // bottom right of triangle
+        mSelectorPaintPath.lineTo(-(mSelectorWidthPx / 2), mSelectorHeightPx); // bottom left of triangle
+        mSelectorPaintPath.lineTo(0, 0); // back to origin
     }
 
     private int clampSelectorPosition(int position) {
-        if (position < mLeftMostSelectorLocationPx) {
-            return mLeftMostSelectorLocationPx;
-        } else if (position > mRightMostSelectorLocationPx) {
-            return mRightMostSelectorLocationPx;
+        int leftMostSelectorLocationPx = getPaddingLeft() + (mSelectorWidthPx / 2);
+        int rightMostSelectorLocationPx = getWidth() - getPaddingRight() - (mSelectorWidthPx / 2);
+        if (position < leftMostSelectorLocationPx) {
+            return leftMostSelectorLocationPx;
+        } else if (position > rightMostSelectorLocationPx) {
+            return rightMostSelectorLocationPx;
         } else {
             return position;
         }
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.NonNull;
+import android.view.MotionEvent;
+
+/**
+ * Predicts where a moving touch will be a short time into the future.  Dragged Views lag behind
+ * the user's finger by the time it takes to get a touch sample on screen.  Moving the View to
+ * where the finger is about to be, instead of where it was, hides that lag.
+ *
+ * A {@code TouchPredictor} estimates the touch's velocity and acceleration from every sample it's
+ * given, including the historical samples batched within a {@link MotionEvent}, and extrapolates
+ * the touch position {@code lookAheadInMillis} past the most recent sample.  A
+ * {@code TouchPredictor} does not allocate while tracking a touch.
+ */
+public class TouchPredictor {
+
+    // How much each new sample contributes to the velocity and acceleration estimates. Lower
+    // values smooth out noise, higher values react faster to changes in direction.
+    private static final float VELOCITY_SMOOTHING = 0.6f;
+    private static final float ACCELERATION_SMOOTHING = 0.3f;
+
+    // If no sample arrives for this long then we assume the touch paused and forget its motion.
+    private static final long MAX_SAMPLE_GAP_IN_MILLIS = 50;
+
+    private final long mLookAheadInMillis;
+    private boolean mHasSample = false;
+    private long mLastSampleTime;
+    private float mLastX;
+    private float mLastY;
+    private float mVelocityX; // px per millisecond
+    private float mVelocityY; // px per millisecond
+    private float mAccelerationX; // px per millisecond^2
+    private float mAccelerationY; // px per millisecond^2
+
+    /**
+     * @param lookAheadInMillis how far past the most recent sample to predict, e.g., the time until
+     *                          the next vsync
+     */
+    public TouchPredictor(long lookAheadInMillis) {
+        mLookAheadInMillis = lookAheadInMillis;
+    }
+
+    public long getLookAheadInMillis() {
+        return mLookAheadInMillis;
+    }
+
+    /**
+     * Forgets all samples. Call this when a new touch begins.
+     */
+    public void reset() {
+        mHasSample = false;
+        mVelocityX = 0;
+        mVelocityY = 0;
+        mAccelerationX = 0;
+        mAccelerationY = 0;
+    }
+
+    /**
+     * Adds every sample in the given {@code MotionEvent}, oldest first, in raw screen coordinates.
+     * @param motionEvent event with the samples to add
+     */
+    public void addSamples(@NonNull MotionEvent motionEvent) {
+        // Historical samples are only available relative to the View, so convert them to raw
+        // coordinates using the offset of the current sample.
+        float rawOffsetX = motionEvent.getRawX() - motionEvent.getX();
+        float rawOffsetY = motionEvent.getRawY() - motionEvent.getY();
+        for (int i = 0; i < motionEvent.getHistorySize(); ++i) {
+            addSample(
+                    motionEvent.getHistoricalEventTime(i),
+                    motionEvent.getHistoricalX(i) + rawOffsetX,
+                    motionEvent.getHistoricalY(i) + rawOffsetY
+            );
+        }
+        addSample(motionEvent.getEventTime(), motionEvent.getRawX(), motionEvent.getRawY());
+    }
+
+    /**
+     * Adds a single touch sample.
+     * @param eventTimeInMillis time of the sample
+     * @param x x-coordinate of the sample
+     * @param y y-coordinate of the sample
+     */
+    public void addSample(long eventTimeInMillis, float x, float y) {
+        if (!mHasSample) {
+            mHasSample = true;
+            recordSample(eventTimeInMillis, x, y);
+            return;
+        }
+
+        long elapsedTime = eventTimeInMillis - mLastSampleTime;
+        if (elapsedTime <= 0) {
+            // Multiple samples with the same timestamp. Keep the latest position.
+            mLastX = x;
+            mLastY = y;
+            return;
+        }
+
+        if (elapsedTime > MAX_SAMPLE_GAP_IN_MILLIS) {
+            mVelocityX = 0;
+            mVelocityY = 0;
+            mAccelerationX = 0;
+            mAccelerationY = 0;
+        } else {
+            float velocityX = mVelocityX + (VELOCITY_SMOOTHING * ((x - mLastX) / elapsedTime - mVelocityX));
+            float velocityY = mVelocityY + (VELOCITY_SMOOTHING * ((y - mLastY) / elapsedTime - mVelocityY));
+            mAccelerationX += ACCELERATION_SMOOTHING * ((velocityX - mVelocityX) / elapsedTime - mAccelerationX);
+            mAccelerationY += ACCELERATION_SMOOTHING * ((velocityY - mVelocityY) / elapsedTime - mAccelerationY);
+            mVelocityX = velocityX;
+            mVelocityY = velocityY;
+        }
+
+        recordSample(eventTimeInMillis, x, y);
+    }
+
+    public float getPredictedX() {
+        return predict(mLastX, mVelocityX, mAccelerationX);
+    }
+
+    public float getPredictedY() {
+        return predict(mLastY, mVelocityY, mAccelerationY);
+    }
+
+    private void recordSample(long eventTimeInMillis, float x, float y) {
+        mLastSampleTime = eventTimeInMillis;
+        mLastX = x;
+        mLastY = y;
+    }
+
+    private float predict(float position, float velocity, float acceleration) {
+        float t = mLookAheadInMillis;
+        return position + (velocity * t) + (0.5f * acceleration * t * t);
+    }
+}
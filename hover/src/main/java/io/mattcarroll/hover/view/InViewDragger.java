@@ -16,14 +16,18 @@
 package io.mattcarroll.hover.view;
 
 import android.graphics.Point;
-import android.graphics.PointF;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 
+import io.mattcarroll.hover.DragTouchTracker;
 import io.mattcarroll.hover.Dragger;
+import io.mattcarroll.hover.TouchPredictor;
 import io.mattcarroll.hover.R;
 
 /**
@@ -35,15 +39,13 @@ public class InViewDragger implements Dragger {
 
     private final ViewGroup mContainer;
     private final int mTouchAreaDiameter;
-    private final int mTapTouchSlop;
+    private final DragTouchTracker mTouchTracker;
+    private final float mMaxFlingVelocity;
+    private TouchPredictor mTouchPredictor;
+    private VelocityTracker mVelocityTracker;
     private boolean mIsActivated;
-    private boolean mIsDragging;
     private boolean mIsDebugMode = false;
     private View mDragView;
-    private DragListener mDragListener;
-    private PointF mOriginalViewPosition = new PointF();
-    private PointF mCurrentViewPosition = new PointF();
-    private PointF mOriginalTouchPosition = new PointF();
 
     private final View.OnTouchListener mDragTouchListener = new View.OnTouchListener() {
         @Override
@@ -51,45 +53,40 @@ public class InViewDragger implements Dragger {
             switch (motionEvent.getAction()) {
                 case MotionEvent.ACTION_DOWN:
                     Log.d(TAG, "ACTION_DOWN");
-                    mIsDragging = false;
-
-                    mOriginalViewPosition = getDragViewCenterPosition();
-                    mCurrentViewPosition = new PointF(mOriginalViewPosition.x, mOriginalViewPosition.y);
-                    mOriginalTouchPosition.set(motionEvent.getRawX(), motionEvent.getRawY());
-
-                    mDragListener.onPress(mCurrentViewPosition.x, mCurrentViewPosition.y);
+                    if (null == mVelocityTracker) {
+                        mVelocityTracker = VelocityTracker.obtain();
+                    } else {
+                        mVelocityTracker.clear();
+                    }
+                    addVelocitySample(motionEvent);
+                    if (null != mTouchPredictor) {
+                        mTouchPredictor.reset();
+                        mTouchPredictor.addSamples(motionEvent);
+                    }
+                    mTouchTracker.onTouchDown(
+                            mDragView.getX() + (mTouchAreaDiameter / 2),
+                            mDragView.getY() + (mTouchAreaDiameter / 2),
+                            motionEvent.getRawX(),
+                            motionEvent.getRawY()
+                    );
 
                     return true;
                 case MotionEvent.ACTION_MOVE:
-                    Log.v(TAG, "ACTION_MOVE. motionX: " + motionEvent.getRawX() + ", motionY: " + motionEvent.getRawY());
-                    float dragDeltaX = motionEvent.getRawX() - mOriginalTouchPosition.x;
-                    float dragDeltaY = motionEvent.getRawY() - mOriginalTouchPosition.y;
-                    mCurrentViewPosition = new PointF(
-                            mOriginalViewPosition.x + dragDeltaX,
-                            mOriginalViewPosition.y + dragDeltaY
-                    );
-
-                    if (mIsDragging || !isTouchWithinSlopOfOriginalTouch(dragDeltaX, dragDeltaY)) {
-                        if (!mIsDragging) {
-                            // Dragging just started
-                            Log.d(TAG, "MOVE Start Drag.");
-                            mIsDragging = true;
-                            mDragListener.onDragStart(mCurrentViewPosition.x, mCurrentViewPosition.y);
-                        } else {
-                            moveDragViewTo(mCurrentViewPosition);
-                            mDragListener.onDragTo(mCurrentViewPosition.x, mCurrentViewPosition.y);
-                        }
+                    // This is the hot path while dragging. Don't log or allocate anything here.
+                    if (null != mTouchPredictor) {
+                        mTouchPredictor.addSamples(motionEvent);
+                    }
+                    addVelocitySample(motionEvent);
+                    if (mTouchTracker.onTouchMove(motionEvent.getRawX(), motionEvent.getRawY())) {
+                        moveDragViewTo(mTouchTracker.getCurrentX(), mTouchTracker.getCurrentY());
                     }
 
                     return true;
                 case MotionEvent.ACTION_UP:
-                    if (!mIsDragging) {
-                        Log.d(TAG, "ACTION_UP: Tap.");
-                        mDragListener.onTap();
-                    } else {
-                        Log.d(TAG, "ACTION_UP: Released from dragging.");
-                        mDragListener.onReleasedAt(mCurrentViewPosition.x, mCurrentViewPosition.y);
-                    }
+                    Log.d(TAG, "ACTION_UP");
+                    addVelocitySample(motionEvent);
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+                    mTouchTracker.onTouchUp(mVelocityTracker.getXVelocity(), mVelocityTracker.getYVelocity());
 
                     return true;
                 default:
@@ -101,7 +98,14 @@ public class InViewDragger implements Dragger {
     public InViewDragger(@NonNull ViewGroup container, int touchAreaDiameter, int touchSlop) {
         mContainer = container;
         mTouchAreaDiameter = touchAreaDiameter;
-        mTapTouchSlop = touchSlop;
+        mMaxFlingVelocity = ViewConfiguration.get(container.getContext()).getScaledMaximumFlingVelocity();
+        mTouchTracker = new DragTouchTracker(touchSlop);
+    }
+
+    @Override
+    public void setTouchPredictor(@Nullable TouchPredictor touchPredictor) {
+        mTouchPredictor = touchPredictor;
+        mTouchTracker.setTouchPredictor(touchPredictor);
     }
 
     @Override
@@ -115,7 +119,7 @@ public class InViewDragger implements Dragger {
         if (!mIsActivated) {
             Log.d(TAG, "Activating.");
             mIsActivated = true;
-            mDragListener = dragListener;
+            mTouchTracker.setDragListener(dragListener);
             createTouchControlView(dragStartCenterPosition);
         }
     }
@@ -129,6 +133,15 @@ public class InViewDragger implements Dragger {
         }
     }
 
+    @Override
+    public void release() {
+        deactivate();
+        if (null != mVelocityTracker) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
     private void createTouchControlView(@NonNull Point dragStartCenterPosition) {
         mDragView = new View(mContainer.getContext());
         mDragView.setId(R.id.hover_drag_view);
@@ -136,7 +149,7 @@ public class InViewDragger implements Dragger {
         mDragView.setOnTouchListener(mDragTouchListener);
         mContainer.addView(mDragView);
 
-        moveDragViewTo(new PointF(dragStartCenterPosition.x, dragStartCenterPosition.y));
+        moveDragViewTo(dragStartCenterPosition.x, dragStartCenterPosition.y);
         updateTouchControlViewAppearance();
     }
 
@@ -158,36 +171,18 @@ public class InViewDragger implements Dragger {
         }
     }
 
-    private boolean isTouchWithinSlopOfOriginalTouch(float dx, float dy) {
-        double distance = Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
-        return distance < mTapTouchSlop;
-    }
-
-    private PointF getDragViewCenterPosition() {
-        return convertCornerToCenter(new PointF(
-                mDragView.getX(),
-                mDragView.getY()
-        ));
-    }
-
-    private void moveDragViewTo(PointF centerPosition) {
-        Log.d(TAG, "Moving drag view (" + mDragView.hashCode() + ") to: " + centerPosition);
-        PointF cornerPosition = convertCenterToCorner(centerPosition);
-        mDragView.setX(cornerPosition.x);
-        mDragView.setY(cornerPosition.y);
-    }
-
-    private PointF convertCornerToCenter(@NonNull PointF cornerPosition) {
-        return new PointF(
-                cornerPosition.x + (mTouchAreaDiameter / 2),
-                cornerPosition.y + (mTouchAreaDiameter / 2)
-        );
+    private void addVelocitySample(@NonNull MotionEvent motionEvent) {
+        // The drag area follows the user's finger so touch positions relative to the drag area
+        // hardly change. Track velocity in screen coordinates instead.
+        float offsetX = motionEvent.getRawX() - motionEvent.getX();
+        float offsetY = motionEvent.getRawY() - motionEvent.getY();
+        motionEvent.offsetLocation(offsetX, offsetY);
+        mVelocityTracker.addMovement(motionEvent);
+        motionEvent.offsetLocation(-offsetX, -offsetY);
     }
 
-    private PointF convertCenterToCorner(@NonNull PointF centerPosition) {
-        return new PointF(
-                centerPosition.x - (mTouchAreaDiameter / 2),
-                centerPosition.y - (mTouchAreaDiameter / 2)
-        );
+    private void moveDragViewTo(float centerX, float centerY) {
+        mDragView.setX(centerX - (mTouchAreaDiameter / 2));
+        mDragView.setY(centerY - (mTouchAreaDiameter / 2));
     }
 }
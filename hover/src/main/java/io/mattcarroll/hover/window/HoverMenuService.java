@@ -100,6 +100,14 @@ public abstract class HoverMenuService extends Service {
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (mIsRunning) {
+            mHoverView.onTrimMemory(level);
+        }
+    }
+
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
@@ -107,12 +115,17 @@ public abstract class HoverMenuService extends Service {
     }
 
     private void initHoverMenu(@NonNull Intent intent) {
+        WindowViewController windowViewController = new WindowViewController((WindowManager) getSystemService(Context.WINDOW_SERVICE));
+        // Coalesce window updates to one per frame, e.g., when touch samples arrive faster than vsync.
+        windowViewController.setBatchUpdates(true);
         mHoverView = HoverView.createForWindow(
                 this,
-                new WindowViewController((WindowManager) getSystemService(Context.WINDOW_SERVICE)),
+                windowViewController,
                 new SideDock.SidePosition(SideDock.SidePosition.RIGHT, 0.5f)
         );
         mHoverView.setOnExitListener(mOnMenuOnExitListener);
+        // Only cover the screen while the user is interacting with the menu.
+        mHoverView.enableCollapsedWindowShrinking(true);
         mHoverView.addToWindow();
 
         onHoverMenuLaunched(intent, mHoverView);
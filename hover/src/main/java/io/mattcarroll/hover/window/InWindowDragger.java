@@ -17,13 +17,17 @@ package io.mattcarroll.hover.window;
 
 import android.content.Context;
 import android.graphics.Point;
-import android.graphics.PointF;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
 
+import io.mattcarroll.hover.DragTouchTracker;
 import io.mattcarroll.hover.Dragger;
+import io.mattcarroll.hover.TouchPredictor;
 
 /**
  * {@link Dragger} implementation that works within a {@code Window}.
@@ -35,63 +39,57 @@ public class InWindowDragger implements Dragger {
     private final Context mContext;
     private final WindowViewController mWindowViewController;
     private final int mTouchAreaDiameter;
-    private final float mTapTouchSlop;
+    private final DragTouchTracker mTouchTracker;
+    private final float mMaxFlingVelocity;
+    private TouchPredictor mTouchPredictor;
+    private VelocityTracker mVelocityTracker;
     private View mDragView;
-    private Dragger.DragListener mDragListener;
     private boolean mIsActivated;
-    private boolean mIsDragging;
     private boolean mIsDebugMode;
 
-    private PointF mOriginalViewPosition = new PointF();
-    private PointF mCurrentViewPosition = new PointF();
-    private PointF mOriginalTouchPosition = new PointF();
-
     private View.OnTouchListener mDragTouchListener = new View.OnTouchListener() {
         @Override
         public boolean onTouch(View view, MotionEvent motionEvent) {
             switch (motionEvent.getAction()) {
                 case MotionEvent.ACTION_DOWN:
                     Log.d(TAG, "ACTION_DOWN");
-                    mIsDragging = false;
-
-                    mOriginalViewPosition = getDragViewCenterPosition();
-                    mCurrentViewPosition = new PointF(mOriginalViewPosition.x, mOriginalViewPosition.y);
-                    mOriginalTouchPosition.set(motionEvent.getRawX(), motionEvent.getRawY());
-
-                    mDragListener.onPress(mCurrentViewPosition.x, mCurrentViewPosition.y);
+                    if (null == mVelocityTracker) {
+                        mVelocityTracker = VelocityTracker.obtain();
+                    } else {
+                        mVelocityTracker.clear();
+                    }
+                    addVelocitySample(motionEvent);
+                    if (null != mTouchPredictor) {
+                        mTouchPredictor.reset();
+                        mTouchPredictor.addSamples(motionEvent);
+                    }
+                    Point cornerPosition = mWindowViewController.getViewPosition(mDragView);
+                    mTouchTracker.onTouchDown(
+                            cornerPosition.x + (mDragView.getWidth() / 2),
+                            cornerPosition.y + (mDragView.getHeight() / 2),
+                            motionEvent.getRawX(),
+                            motionEvent.getRawY()
+                    );
 
                     return true;
                 case MotionEvent.ACTION_MOVE:
-                    Log.d(TAG, "ACTION_MOVE. motionX: " + motionEvent.getRawX() + ", motionY: " + motionEvent.getRawY());
-                    float dragDeltaX = motionEvent.getRawX() - mOriginalTouchPosition.x;
-                    float dragDeltaY = motionEvent.getRawY() - mOriginalTouchPosition.y;
-                    mCurrentViewPosition = new PointF(
-                            mOriginalViewPosition.x + dragDeltaX,
-                            mOriginalViewPosition.y + dragDeltaY
-                    );
-
-                    if (mIsDragging || !isTouchWithinSlopOfOriginalTouch(dragDeltaX, dragDeltaY)) {
-                        if (!mIsDragging) {
-                            // Dragging just started
-                            Log.d(TAG, "MOVE Start Drag.");
-                            mIsDragging = true;
-                            mDragListener.onDragStart(mCurrentViewPosition.x, mCurrentViewPosition.y);
-                        } else {
-                            moveDragViewTo(mCurrentViewPosition);
-                            mDragListener.onDragTo(mCurrentViewPosition.x, mCurrentViewPosition.y);
-                        }
+                    // This is the hot path while dragging. Don't log or allocate anything here.
+                    if (null != mTouchPredictor) {
+                        mTouchPredictor.addSamples(motionEvent);
+                    }
+                    addVelocitySample(motionEvent);
+                    if (mTouchTracker.onTouchMove(motionEvent.getRawX(), motionEvent.getRawY())) {
+                        moveDragViewTo(mTouchTracker.getCurrentX(), mTouchTracker.getCurrentY());
                     }
 
                     return true;
                 case MotionEvent.ACTION_UP:
                     Log.d(TAG, "ACTION_UP");
-                    if (!mIsDragging) {
-                        Log.d(TAG, "Reporting as a tap.");
-                        mDragListener.onTap();
-                    } else {
-                        Log.d(TAG, "Reporting as a drag release at: " + mCurrentViewPosition);
-                        mDragListener.onReleasedAt(mCurrentViewPosition.x, mCurrentViewPosition.y);
-                    }
+                    // Make sure the drag area lands where it was dropped before anyone reacts.
+                    mWindowViewController.commitPendingUpdates();
+                    addVelocitySample(motionEvent);
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+                    mTouchTracker.onTouchUp(mVelocityTracker.getXVelocity(), mVelocityTracker.getYVelocity());
 
                     return true;
                 default:
@@ -113,52 +111,76 @@ public class InWindowDragger implements Dragger {
         mContext = context;
         mWindowViewController = windowViewController;
         mTouchAreaDiameter = touchAreaDiameter;
-        mTapTouchSlop = tapTouchSlop;
+        mMaxFlingVelocity = ViewConfiguration.get(context).getScaledMaximumFlingVelocity();
+        mTouchTracker = new DragTouchTracker(tapTouchSlop);
     }
 
     public void activate(@NonNull DragListener dragListener, @NonNull Point dragStartCenterPosition) {
         if (!mIsActivated) {
             Log.d(TAG, "Activating.");
-            createTouchControlView(dragStartCenterPosition);
-            mDragListener = dragListener;
-            mDragView.setOnTouchListener(mDragTouchListener);
+            mTouchTracker.setDragListener(dragListener);
+            if (null == mDragView) {
+                createTouchControlView();
+            }
+            mWindowViewController.moveViewTo(mDragView, dragStartCenterPosition.x - (mTouchAreaDiameter / 2), dragStartCenterPosition.y - (mTouchAreaDiameter / 2));
+            mWindowViewController.setTouchable(mDragView, true);
             mIsActivated = true;
+            updateTouchControlViewAppearance();
         }
     }
 
     public void deactivate() {
         if (mIsActivated) {
             Log.d(TAG, "Deactivating.");
-            mDragView.setOnTouchListener(null);
-            destroyTouchControlView();
+            // Adding and removing windows is expensive so we keep our touch window around and
+            // just let touches pass through it until we're activated again.
+            mWindowViewController.setTouchable(mDragView, false);
             mIsActivated = false;
+            updateTouchControlViewAppearance();
         }
     }
 
+    @Override
+    public void release() {
+        deactivate();
+        if (null != mVelocityTracker) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        if (null != mDragView) {
+            Log.d(TAG, "Releasing touch window.");
+            destroyTouchControlView();
+        }
+    }
+
+    @Override
+    public void setTouchPredictor(@Nullable TouchPredictor touchPredictor) {
+        mTouchPredictor = touchPredictor;
+        mTouchTracker.setTouchPredictor(touchPredictor);
+    }
+
     @Override
     public void enableDebugMode(boolean isDebugMode) {
         mIsDebugMode = isDebugMode;
         updateTouchControlViewAppearance();
     }
 
-    private void createTouchControlView(@NonNull final Point dragStartCenterPosition) {
+    private void createTouchControlView() {
         // TODO: define dimen size
         mDragView = new View(mContext);
-        mWindowViewController.addView(mTouchAreaDiameter, mTouchAreaDiameter, true, mDragView);
-        mWindowViewController.moveViewTo(mDragView, dragStartCenterPosition.x - (mTouchAreaDiameter / 2), dragStartCenterPosition.y - (mTouchAreaDiameter / 2));
+        mWindowViewController.addView(mTouchAreaDiameter, mTouchAreaDiameter, false, mDragView);
         mDragView.setOnTouchListener(mDragTouchListener);
-
-        updateTouchControlViewAppearance();
     }
 
     private void destroyTouchControlView() {
+        mDragView.setOnTouchListener(null);
         mWindowViewController.removeView(mDragView);
         mDragView = null;
     }
 
     private void updateTouchControlViewAppearance() {
         if (null != mDragView) {
-            if (mIsDebugMode) {
+            if (mIsDebugMode && mIsActivated) {
                 mDragView.setBackgroundColor(0x44FF0000);
             } else {
                 mDragView.setBackgroundColor(0x00000000);
@@ -166,38 +188,21 @@ public class InWindowDragger implements Dragger {
         }
     }
 
-    private boolean isTouchWithinSlopOfOriginalTouch(float dx, float dy) {
-        double distance = Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
-        Log.d(TAG, "Drag distance " + distance + " vs slop allowance " + mTapTouchSlop);
-        return distance < mTapTouchSlop;
-    }
-
-    private PointF getDragViewCenterPosition() {
-        Point cornerPosition = mWindowViewController.getViewPosition(mDragView);
-        return convertCornerToCenter(new PointF(
-                cornerPosition.x,
-                cornerPosition.y
-        ));
-    }
-
-    private void moveDragViewTo(PointF centerPosition) {
-        Log.d(TAG, "Center position: " + centerPosition);
-        PointF cornerPosition = convertCenterToCorner(centerPosition);
-        Log.d(TAG, "Corner position: " + cornerPosition);
-        mWindowViewController.moveViewTo(mDragView, (int) cornerPosition.x, (int) cornerPosition.y);
-    }
-
-    private PointF convertCornerToCenter(@NonNull PointF cornerPosition) {
-        return new PointF(
-                cornerPosition.x + (mDragView.getWidth() / 2),
-                cornerPosition.y + (mDragView.getHeight() / 2)
-        );
+    private void addVelocitySample(@NonNull MotionEvent motionEvent) {
+        // The drag area follows the user's finger so touch positions relative to the drag area
+        // hardly change. Track velocity in screen coordinates instead.
+        float offsetX = motionEvent.getRawX() - motionEvent.getX();
+        float offsetY = motionEvent.getRawY() - motionEvent.getY();
+        motionEvent.offsetLocation(offsetX, offsetY);
+        mVelocityTracker.addMovement(motionEvent);
+        motionEvent.offsetLocation(-offsetX, -offsetY);
     }
 
-    private PointF convertCenterToCorner(@NonNull PointF centerPosition) {
-        return new PointF(
-                centerPosition.x - (mDragView.getWidth() / 2),
-                centerPosition.y - (mDragView.getHeight() / 2)
+    private void moveDragViewTo(float centerX, float centerY) {
+        mWindowViewController.moveViewTo(
+                mDragView,
+                (int) (centerX - (mDragView.getWidth() / 2)),
+                (int) (centerY - (mDragView.getHeight() / 2))
         );
     }
 }
@@ -18,22 +18,118 @@ package io.mattcarroll.hover.window;
 import android.graphics.PixelFormat;
 import android.graphics.Point;
 import android.os.Build;
+import android.os.Handler;
 import android.support.annotation.NonNull;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.View;
 import android.view.WindowManager;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Controls {@code View}s' positions, visibility, etc within a {@code Window}.
+ *
+ * Every change to a {@code View}'s window layout is an IPC to the window manager.  When batching is
+ * enabled, position and flag changes are recorded on the {@code View}'s layout params and committed
+ * once per frame from a {@link Choreographer} callback, or a {@link Handler} before API 16, so a
+ * burst of changes to the same {@code View} within a frame only costs one IPC.  In addition, the
+ * last layout committed for each {@code View} is cached so that updates which wouldn't change
+ * anything are never sent.  Must be used from the UI thread.
  */
 public class WindowViewController {
 
+    private static final long FALLBACK_FRAME_INTERVAL_IN_MILLIS = 16;
+
     private WindowManager mWindowManager;
+    private boolean mIsBatchingUpdates = false;
+    private boolean mIsFrameCallbackPosted = false;
+    private Choreographer mChoreographer;
+    // Only created on API 16+.
+    private Choreographer.FrameCallback mCommitFrameCallback;
+    // Only used before API 16, which has no Choreographer.
+    private Handler mFallbackHandler;
+    private final List<View> mViewsWithPendingUpdates = new ArrayList<>();
+    private final Map<View, CommittedLayout> mCommittedLayouts = new HashMap<>();
+    private int mRequestedUpdateCount = 0;
+    private int mCommittedUpdateCount = 0;
+
+    private final Runnable mFallbackCommitRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mIsFrameCallbackPosted = false;
+            commitPendingUpdates();
+        }
+    };
 
     public WindowViewController(@NonNull WindowManager windowManager) {
         mWindowManager = windowManager;
     }
 
+    /**
+     * Enables/disables coalescing of window layout updates into at most one update per
+     * {@code View} per frame.  Disabling batching immediately commits any pending updates.
+     * @param batchUpdates true to commit updates once per frame, false to commit every update
+     *                     immediately
+     */
+    public void setBatchUpdates(boolean batchUpdates) {
+        mIsBatchingUpdates = batchUpdates;
+        if (!batchUpdates) {
+            commitPendingUpdates();
+        }
+    }
+
+    public boolean isBatchingUpdates() {
+        return mIsBatchingUpdates;
+    }
+
+    /**
+     * Immediately sends all pending layout updates to the window manager rather than waiting for
+     * the next frame.  Use this when the window must be in its final position right now, e.g., when
+     * the user drops something that was being dragged.
+     */
+    public void commitPendingUpdates() {
+        if (mIsFrameCallbackPosted) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                mChoreographer.removeFrameCallback(mCommitFrameCallback);
+            } else {
+                mFallbackHandler.removeCallbacks(mFallbackCommitRunnable);
+            }
+            mIsFrameCallbackPosted = false;
+        }
+
+        for (int i = 0; i < mViewsWithPendingUpdates.size(); ++i) {
+            View view = mViewsWithPendingUpdates.get(i);
+            if (null != view.getParent()) {
+                commitViewLayout(view, (WindowManager.LayoutParams) view.getLayoutParams());
+            }
+        }
+        mViewsWithPendingUpdates.clear();
+    }
+
+    /**
+     * @return the number of layout updates that were actually sent to the window manager
+     */
+    public int getCommittedUpdateCount() {
+        return mCommittedUpdateCount;
+    }
+
+    /**
+     * @return the number of requested layout updates that were never sent to the window manager,
+     * either because they didn't change anything or because they were coalesced with later updates
+     */
+    public int getSkippedUpdateCount() {
+        return mRequestedUpdateCount - mCommittedUpdateCount;
+    }
+
+    public void resetUpdateCounts() {
+        mRequestedUpdateCount = 0;
+        mCommittedUpdateCount = 0;
+    }
+
     public void addView(int width, int height, boolean isTouchable, @NonNull View view) {
         // If this view is untouchable then add the corresponding flag, otherwise set to zero which
         // won't have any effect on the OR'ing of flags.
@@ -55,9 +151,12 @@ public class WindowViewController {
         params.y = 0;
 
         mWindowManager.addView(view, params);
+        recordCommittedLayout(view, params);
     }
 
     public void removeView(@NonNull View view) {
+        mViewsWithPendingUpdates.remove(view);
+        mCommittedLayouts.remove(view);
         if (null != view.getParent()) {
             mWindowManager.removeView(view);
         }
@@ -72,19 +171,36 @@ public class WindowViewController {
         WindowManager.LayoutParams params = (WindowManager.LayoutParams) view.getLayoutParams();
         params.x = x;
         params.y = y;
-        mWindowManager.updateViewLayout(view, params);
+        updateViewLayout(view, params);
+    }
+
+    /**
+     * Moves and resizes the given {@code View}'s window with a single layout update.
+     */
+    public void setViewBounds(@NonNull View view, int x, int y, int width, int height) {
+        WindowManager.LayoutParams params = (WindowManager.LayoutParams) view.getLayoutParams();
+        params.x = x;
+        params.y = y;
+        params.width = width;
+        params.height = height;
+        updateViewLayout(view, params);
     }
 
     public void showView(View view) {
         try {
             WindowManager.LayoutParams params = (WindowManager.LayoutParams) view.getLayoutParams();
+            // The params we're about to add already include any pending changes.
+            mViewsWithPendingUpdates.remove(view);
             mWindowManager.addView(view, params);
+            recordCommittedLayout(view, params);
         } catch (IllegalStateException e) {
             // The view is already visible.
         }
     }
 
     public void hideView(View view) {
+        mViewsWithPendingUpdates.remove(view);
+        mCommittedLayouts.remove(view);
         try {
             mWindowManager.removeView(view);
         } catch (IllegalArgumentException e) {
@@ -95,13 +211,115 @@ public class WindowViewController {
     public void makeTouchable(View view) {
         WindowManager.LayoutParams params = (WindowManager.LayoutParams) view.getLayoutParams();
         params.flags = params.flags & ~WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE & ~WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE;
-        mWindowManager.updateViewLayout(view, params);
+        updateViewLayout(view, params);
     }
 
     public void makeUntouchable(View view) {
         WindowManager.LayoutParams params = (WindowManager.LayoutParams) view.getLayoutParams();
         params.flags = params.flags | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE | WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE;
+        updateViewLayout(view, params);
+    }
+
+    /**
+     * Sets whether the given {@code View} receives touch events.  Unlike {@link #makeTouchable(View)},
+     * this does not change whether the {@code View} can take focus.
+     * @param view view to update
+     * @param isTouchable true to receive touch events, false to let them pass through
+     */
+    public void setTouchable(@NonNull View view, boolean isTouchable) {
+        WindowManager.LayoutParams params = (WindowManager.LayoutParams) view.getLayoutParams();
+        if (isTouchable) {
+            params.flags = params.flags & ~WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        } else {
+            params.flags = params.flags | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        }
+        updateViewLayout(view, params);
+    }
+
+    private void updateViewLayout(@NonNull View view, @NonNull WindowManager.LayoutParams params) {
+        ++mRequestedUpdateCount;
+        if (!mIsBatchingUpdates) {
+            commitViewLayout(view, params);
+            return;
+        }
+
+        // The new values already live in the View's layout params, so we only need to remember
+        // that this View must be committed.
+        if (!mViewsWithPendingUpdates.contains(view)) {
+            mViewsWithPendingUpdates.add(view);
+        }
+        if (!mIsFrameCallbackPosted) {
+            postCommitFrameCallback();
+            mIsFrameCallbackPosted = true;
+        }
+    }
+
+    private void postCommitFrameCallback() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (null == mChoreographer) {
+                mChoreographer = Choreographer.getInstance();
+                mCommitFrameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        mIsFrameCallbackPosted = false;
+                        commitPendingUpdates();
+                    }
+                };
+            }
+            mChoreographer.postFrameCallback(mCommitFrameCallback);
+        } else {
+            if (null == mFallbackHandler) {
+                mFallbackHandler = new Handler();
+            }
+            mFallbackHandler.postDelayed(mFallbackCommitRunnable, FALLBACK_FRAME_INTERVAL_IN_MILLIS);
+        }
+    }
+
+    private void commitViewLayout(@NonNull View view, @NonNull WindowManager.LayoutParams params) {
+        CommittedLayout committedLayout = mCommittedLayouts.get(view);
+        if (null != committedLayout && committedLayout.matches(params)) {
+            // The window manager already has this layout. Skip the IPC.
+            return;
+        }
+
         mWindowManager.updateViewLayout(view, params);
+        ++mCommittedUpdateCount;
+        recordCommittedLayout(view, params);
+    }
+
+    private void recordCommittedLayout(@NonNull View view, @NonNull WindowManager.LayoutParams params) {
+        CommittedLayout committedLayout = mCommittedLayouts.get(view);
+        if (null == committedLayout) {
+            committedLayout = new CommittedLayout();
+            mCommittedLayouts.put(view, committedLayout);
+        }
+        committedLayout.set(params);
+    }
+
+    // The parts of a View's WindowManager.LayoutParams that this controller changes, as they were
+    // last sent to the window manager.
+    private static class CommittedLayout {
+        private int mX;
+        private int mY;
+        private int mWidth;
+        private int mHeight;
+        private int mFlags;
+
+        void set(@NonNull WindowManager.LayoutParams params) {
+            mX = params.x;
+            mY = params.y;
+            mWidth = params.width;
+            mHeight = params.height;
+            mFlags = params.flags;
+        }
+
+        boolean matches(@NonNull WindowManager.LayoutParams params) {
+            return mX == params.x
+                    && mY == params.y
+                    && mWidth == params.width
+                    && mHeight == params.height
+                    && mFlags == params.flags;
+        }
     }
 
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds synthetic frame intervals to an {@link AdaptiveAnimationQuality} and checks when it reduces
+ * and restores quality.
+ */
+public class AdaptiveAnimationQualityTest {
+
+    private static final long SMOOTH_FRAME_IN_NANOS = 16_666_667L; // 60Hz
+    private static final long JANKY_FRAME_IN_NANOS = 50_000_000L; // 2 dropped frames
+
+    @Test
+    public void staysAtFullQualityWhenFramesAreSmooth() {
+        AdaptiveAnimationQuality quality = new AdaptiveAnimationQuality();
+        feed(quality, SMOOTH_FRAME_IN_NANOS, 10 * AdaptiveAnimationQuality.WINDOW_FRAME_COUNT);
+
+        assertFalse(quality.isReduced());
+    }
+
+    @Test
+    public void ignoresAnOccasionalJankyFrame() {
+        AdaptiveAnimationQuality quality = new AdaptiveAnimationQuality();
+        for (int i = 0; i < 10; ++i) {
+            feed(quality, JANKY_FRAME_IN_NANOS, 1);
+            feed(quality, SMOOTH_FRAME_IN_NANOS, AdaptiveAnimationQuality.WINDOW_FRAME_COUNT - 1);
+        }
+
+        assertFalse(quality.isReduced());
+    }
+
+    @Test
+    public void reducesQualityOnJank() {
+        AdaptiveAnimationQuality quality = new AdaptiveAnimationQuality();
+        feed(quality, JANKY_FRAME_IN_NANOS, AdaptiveAnimationQuality.JANKY_FRAMES_TO_REDUCE);
+
+        assertTrue(quality.isReduced());
+    }
+
+    @Test
+    public void restoresQualityOnlyAfterFramesRecover() {
+        AdaptiveAnimationQuality quality = new AdaptiveAnimationQuality();
+        feed(quality, JANKY_FRAME_IN_NANOS, AdaptiveAnimationQuality.JANKY_FRAMES_TO_REDUCE);
+
+        int framesToRestore = AdaptiveAnimationQuality.SMOOTH_WINDOWS_TO_RESTORE * AdaptiveAnimationQuality.WINDOW_FRAME_COUNT;
+        feed(quality, SMOOTH_FRAME_IN_NANOS, framesToRestore - 1);
+        assertTrue(quality.isReduced());
+
+        feed(quality, SMOOTH_FRAME_IN_NANOS, 1);
+        assertFalse(quality.isReduced());
+    }
+
+    @Test
+    public void disablingRestoresFullQuality() {
+        AdaptiveAnimationQuality quality = new AdaptiveAnimationQuality();
+        feed(quality, JANKY_FRAME_IN_NANOS, AdaptiveAnimationQuality.JANKY_FRAMES_TO_REDUCE);
+
+        quality.setEnabled(false);
+        assertFalse(quality.isReduced());
+
+        feed(quality, JANKY_FRAME_IN_NANOS, AdaptiveAnimationQuality.WINDOW_FRAME_COUNT);
+        assertFalse(quality.isReduced());
+    }
+
+    private void feed(AdaptiveAnimationQuality quality, long frameIntervalInNanos, int frameCount) {
+        for (int i = 0; i < frameCount; ++i) {
+            quality.onFrame(frameIntervalInNanos);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class DragTouchTrackerTest {
+
+    private static final float TOUCH_SLOP = 8f;
+    private static final int MOVE_EVENT_COUNT = 10000;
+
+    private RecordingDragListener mListener;
+    private DragTouchTracker mTracker;
+
+    @Before
+    public void setup() {
+        mListener = new RecordingDragListener();
+        mTracker = new DragTouchTracker(TOUCH_SLOP);
+        mTracker.setDragListener(mListener);
+    }
+
+    @Test
+    public void reportsTapWhenMovementStaysWithinSlop() {
+        mTracker.onTouchDown(100, 100, 500, 500);
+        assertFalse(mTracker.onTouchMove(503, 503));
+        mTracker.onTouchUp(0, 0);
+
+        assertEquals(1, mListener.mPressCount);
+        assertEquals(0, mListener.mDragStartCount);
+        assertEquals(1, mListener.mTapCount);
+        assertEquals(0, mListener.mReleaseCount);
+    }
+
+    @Test
+    public void reportsDragRelativeToOriginalViewPosition() {
+        mTracker.onTouchDown(100, 100, 500, 500);
+        assertFalse(mTracker.onTouchMove(520, 500)); // Starts the drag.
+        assertTrue(mTracker.onTouchMove(530, 540));
+        mTracker.onTouchUp(1000, -500);
+
+        assertEquals(1, mListener.mDragStartCount);
+        assertEquals(1, mListener.mDragToCount);
+        assertEquals(130f, mListener.mLastX, 0f);
+        assertEquals(140f, mListener.mLastY, 0f);
+        assertEquals(1, mListener.mReleaseCount);
+        assertEquals(1000f, mListener.mReleaseVelocityX, 0f);
+        assertEquals(-500f, mListener.mReleaseVelocityY, 0f);
+        assertEquals(0, mListener.mTapCount);
+    }
+
+    @Test
+    public void moveEventsDoNotAllocate() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        mTracker.onTouchDown(100, 100, 500, 500);
+        // Warm up so that class loading and compilation don't count against the drag.
+        dragBackAndForth();
+
+        // Measure the cost of measuring so it can be discounted.
+        long measurementStart = allocationBean.getThreadAllocatedBytes(threadId);
+        long measurementOverhead = allocationBean.getThreadAllocatedBytes(threadId) - measurementStart;
+
+        long start = allocationBean.getThreadAllocatedBytes(threadId);
+        dragBackAndForth();
+        long allocatedBytes = allocationBean.getThreadAllocatedBytes(threadId) - start - measurementOverhead;
+
+        assertTrue(mTracker.isDragging());
+        assertEquals("Bytes allocated across " + MOVE_EVENT_COUNT + " move events", 0, allocatedBytes);
+    }
+
+    private void dragBackAndForth() {
+        for (int i = 0; i < MOVE_EVENT_COUNT; ++i) {
+            mTracker.onTouchMove(500 + (i % 200), 500 + (i % 100));
+        }
+    }
+
+    private static class RecordingDragListener implements Dragger.DragListener {
+
+        private int mPressCount;
+        private int mDragStartCount;
+        private int mDragToCount;
+        private int mReleaseCount;
+        private int mTapCount;
+        private float mLastX;
+        private float mLastY;
+        private float mReleaseVelocityX;
+        private float mReleaseVelocityY;
+
+        @Override
+        public void onPress(float x, float y) {
+            ++mPressCount;
+        }
+
+        @Override
+        public void onDragStart(float x, float y) {
+            ++mDragStartCount;
+        }
+
+        @Override
+        public void onDragTo(float x, float y) {
+            ++mDragToCount;
+            mLastX = x;
+            mLastY = y;
+        }
+
+        @Override
+        public void onReleasedAt(float x, float y, float velocityX, float velocityY) {
+            ++mReleaseCount;
+            mReleaseVelocityX = velocityX;
+            mReleaseVelocityY = velocityY;
+        }
+
+        @Override
+        public void onTap() {
+            ++mTapCount;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@code Section} index, transactions and async diffing of {@link HoverMenu}.
+ *
+ * Tab {@code View}s can't be created in JVM tests, so every {@code Section} here has a null tab
+ * {@code View}.
+ */
+public class HoverMenuTest {
+
+    private TestMenu mMenu;
+    private QueuedExecutor mDiffExecutor;
+    private QueuedExecutor mMainThreadExecutor;
+
+    @Before
+    public void setup() {
+        mMenu = new TestMenu();
+        mDiffExecutor = new QueuedExecutor();
+        mMainThreadExecutor = new QueuedExecutor();
+        mMenu.setMainThreadExecutor(mMainThreadExecutor);
+    }
+
+    @Test
+    public void indexesSectionsById() {
+        mMenu.setSections(createSection("A"), createSection("B"), createSection("C"));
+
+        assertEquals(1, mMenu.getSectionIndex(new HoverMenu.SectionId("B")));
+        assertEquals("C", mMenu.getSection(new HoverMenu.SectionId("C")).getId().toString());
+        assertEquals(-1, mMenu.getSectionIndex(new HoverMenu.SectionId("D")));
+        assertNull(mMenu.getSection(new HoverMenu.SectionId("D")));
+    }
+
+    @Test
+    public void reindexesSectionsAfterReorderAndRemoval() {
+        mMenu.setSections(createSection("A"), createSection("B"), createSection("C"));
+        mMenu.notifyMenuChanged();
+
+        mMenu.setSections(createSection("C"), createSection("A"));
+        mMenu.notifyMenuChanged();
+
+        assertEquals(0, mMenu.getSectionIndex(new HoverMenu.SectionId("C")));
+        assertEquals(1, mMenu.getSectionIndex(new HoverMenu.SectionId("A")));
+        assertEquals(-1, mMenu.getSectionIndex(new HoverMenu.SectionId("B")));
+        assertNull(mMenu.getSection(new HoverMenu.SectionId("B")));
+    }
+
+    @Test
+    public void looksUpSectionsAsOfLastNotification() {
+        mMenu.setSections(createSection("A"));
+        mMenu.notifyMenuChanged();
+
+        mMenu.setSections(createSection("B"), createSection("A"));
+
+        assertEquals(0, mMenu.getSectionIndex(createSection("A")));
+        assertNull(mMenu.getSection(new HoverMenu.SectionId("B")));
+    }
+
+    @Test
+    public void holdsBackUpdatesUntilOutermostCommit() {
+        mMenu.setSections(createSection("A"));
+        mMenu.notifyMenuChanged();
+
+        mMenu.beginTransaction();
+        mMenu.beginTransaction();
+        mMenu.setSections(createSection("A"), createSection("B"));
+        mMenu.notifyMenuChanged();
+        mMenu.commitTransaction();
+        assertAppliedSections("A");
+
+        mMenu.setSections(createSection("A"), createSection("B"), createSection("C"));
+        mMenu.notifyMenuChanged();
+        mMenu.commitTransaction();
+        assertAppliedSections("A", "B", "C");
+    }
+
+    @Test
+    public void doesNotDiffTransactionWithoutChanges() {
+        mMenu.setSections(createSection("A"));
+        mMenu.notifyMenuChanged();
+        int readCount = mMenu.getSectionsReadCount();
+
+        mMenu.beginTransaction();
+        mMenu.commitTransaction();
+
+        assertEquals(readCount, mMenu.getSectionsReadCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void throwsOnCommitWithoutBegin() {
+        mMenu.beginTransaction();
+        mMenu.commitTransaction();
+        mMenu.commitTransaction();
+    }
+
+    @Test
+    public void coalescesNotificationsWhileDiffing() {
+        mMenu.notifyMenuChanged();
+        mMenu.setDiffExecutor(mDiffExecutor);
+
+        mMenu.setSections(createSection("A"));
+        mMenu.notifyMenuChanged();
+        mMenu.setSections(createSection("A"), createSection("B"));
+        mMenu.notifyMenuChanged();
+        mMenu.setSections(createSection("A"), createSection("B"), createSection("C"));
+        mMenu.notifyMenuChanged();
+
+        // Only the first notification is diffed right away.
+        assertEquals(1, mDiffExecutor.size());
+        mDiffExecutor.runAll();
+        mMainThreadExecutor.runAll();
+        assertAppliedSections("A");
+
+        // The two later notifications are diffed together.
+        assertEquals(1, mDiffExecutor.size());
+        mDiffExecutor.runAll();
+        mMainThreadExecutor.runAll();
+        assertAppliedSections("A", "B", "C");
+
+        assertEquals(0, mDiffExecutor.size());
+        assertEquals(2, mDiffExecutor.getExecutedCount());
+    }
+
+    @Test
+    public void appliesAsyncDiffOnMainThread() {
+        mMenu.notifyMenuChanged();
+        mMenu.setDiffExecutor(mDiffExecutor);
+        mMenu.setSections(createSection("A"));
+        mMenu.notifyMenuChanged();
+
+        mDiffExecutor.runAll();
+        assertAppliedSections();
+
+        mMainThreadExecutor.runAll();
+        assertAppliedSections("A");
+    }
+
+    @Test
+    public void synchronousUpdateSupersedesInFlightDiff() {
+        mMenu.notifyMenuChanged();
+        mMenu.setDiffExecutor(mDiffExecutor);
+        mMenu.setSections(createSection("A"));
+        mMenu.notifyMenuChanged();
+
+        mMenu.setDiffExecutor(null);
+        mMenu.setSections(createSection("B"));
+        mMenu.notifyMenuChanged();
+        assertAppliedSections("B");
+
+        // The stale diff finishes afterwards and must not be applied.
+        mDiffExecutor.runAll();
+        mMainThreadExecutor.runAll();
+        assertAppliedSections("B");
+    }
+
+    @Test
+    public void reportsWhatChangedInSection() {
+        TestContent content = new TestContent("content");
+        List<HoverMenu.Section> oldSections = Arrays.asList(
+                createSection("A", content),
+                createSection("B", new TestContent("old"))
+        );
+        List<HoverMenu.Section> newSections = Arrays.asList(
+                createSection("A", new TestContent("content")),
+                createSection("B", new TestContent("new"))
+        );
+        HoverMenu.MenuDiffCallback callback = new HoverMenu.MenuDiffCallback(oldSections, newSections);
+
+        assertTrue(callback.areItemsTheSame(0, 0));
+        assertTrue(callback.areContentsTheSame(0, 0));
+        assertFalse(callback.areContentsTheSame(1, 1));
+
+        HoverMenu.SectionChange change = (HoverMenu.SectionChange) callback.getChangePayload(1, 1);
+        assertTrue(change.isContentChanged());
+        assertFalse(change.isTabViewChanged());
+    }
+
+    private void assertAppliedSections(@NonNull String... expectedIds) {
+        assertEquals(expectedIds.length, mMenu.getAppliedSectionCount());
+        for (int i = 0; i < expectedIds.length; ++i) {
+            assertEquals(expectedIds[i], mMenu.getAppliedSection(i).getId().toString());
+        }
+    }
+
+    @NonNull
+    private static HoverMenu.Section createSection(@NonNull String id) {
+        return createSection(id, new TestContent(id));
+    }
+
+    @NonNull
+    private static HoverMenu.Section createSection(@NonNull String id, @NonNull Content content) {
+        return new HoverMenu.Section(new HoverMenu.SectionId(id), null, content);
+    }
+
+    private static class TestMenu extends HoverMenu {
+
+        private List<Section> mSections = new ArrayList<>();
+        private int mSectionsReadCount = 0;
+
+        void setSections(@NonNull Section... sections) {
+            mSections = Arrays.asList(sections);
+        }
+
+        int getSectionsReadCount() {
+            return mSectionsReadCount;
+        }
+
+        @Override
+        public String getId() {
+            return "test";
+        }
+
+        @Override
+        public int getSectionCount() {
+            return mSections.size();
+        }
+
+        @Nullable
+        @Override
+        public Section getSection(int index) {
+            return mSections.get(index);
+        }
+
+        @NonNull
+        @Override
+        public List<Section> getSections() {
+            ++mSectionsReadCount;
+            return new ArrayList<>(mSections);
+        }
+    }
+
+    // Content that is equal to any other TestContent with the same name.
+    private static class TestContent implements Content {
+
+        private final String mName;
+
+        TestContent(@NonNull String name) {
+            mName = name;
+        }
+
+        @NonNull
+        @Override
+        public View getView() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isFullscreen() {
+            return false;
+        }
+
+        @Override
+        public void onShown() {
+            // No-op.
+        }
+
+        @Override
+        public void onHidden() {
+            // No-op.
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestContent && mName.equals(((TestContent) o).mName);
+        }
+
+        @Override
+        public int hashCode() {
+            return mName.hashCode();
+        }
+    }
+
+    // Holds on to Runnables until the test runs them.
+    private static class QueuedExecutor implements Executor {
+
+        private final List<Runnable> mQueue = new ArrayList<>();
+        private int mExecutedCount = 0;
+
+        @Override
+        public void execute(@NonNull Runnable runnable) {
+            mQueue.add(runnable);
+        }
+
+        int size() {
+            return mQueue.size();
+        }
+
+        int getExecutedCount() {
+            return mExecutedCount;
+        }
+
+        void runAll() {
+            while (!mQueue.isEmpty()) {
+                ++mExecutedCount;
+                mQueue.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays batches of updates, in the order {@code DiffUtil} dispatches them, through a
+ * {@link ListUpdateTracker} and checks that every update lands on the item it refers to.
+ */
+public class ListUpdateTrackerTest {
+
+    @Test
+    public void tracksRemoveAndInsertInOneBatch() {
+        // [A, B, C] -> [B, C, D]: DiffUtil dispatches the insert at the end before the removal at
+        // the front, so position 3 doesn't exist in either the old or the new list.
+        ListUpdateTracker<String> tracker = new ListUpdateTracker<>(Arrays.asList("A", "B", "C"));
+        tracker.onInserted(3, 1);
+        tracker.onRemoved(0, 1);
+
+        assertEquals(Arrays.asList("B", "C", null), tracker.getItems());
+        assertEquals(Collections.singletonList("A"), tracker.getRemovedItems());
+    }
+
+    @Test
+    public void tracksChangesPartWayThroughABatch() {
+        // [A, B, C] -> [A, X, C'], where C changed: the change is reported at C's position after
+        // B was removed and X was inserted.
+        ListUpdateTracker<String> tracker = new ListUpdateTracker<>(Arrays.asList("A", "B", "C"));
+        tracker.onChanged(2, 1, "payload");
+        tracker.onRemoved(1, 1);
+        tracker.onInserted(1, 1);
+
+        assertEquals(Arrays.asList("A", null, "C"), tracker.getItems());
+        assertTrue(tracker.isChanged("C"));
+        assertEquals("payload", tracker.getChangePayload("C"));
+        assertFalse(tracker.isChanged("A"));
+        assertEquals(Collections.singletonList("B"), tracker.getRemovedItems());
+    }
+
+    @Test
+    public void tracksMoves() {
+        // [A, B, C, D] -> [D, A, E, B]: C is removed, D moves to the front and E is inserted.
+        ListUpdateTracker<String> tracker = new ListUpdateTracker<>(Arrays.asList("A", "B", "C", "D"));
+        tracker.onMoved(3, 0);
+        tracker.onRemoved(3, 1);
+        tracker.onInserted(2, 1);
+
+        assertEquals(Arrays.asList("D", "A", null, "B"), tracker.getItems());
+        assertEquals(Collections.singletonList("C"), tracker.getRemovedItems());
+    }
+
+    @Test
+    public void forgetsChangesOfRemovedItems() {
+        ListUpdateTracker<String> tracker = new ListUpdateTracker<>(Arrays.asList("A", "B"));
+        tracker.onChanged(0, 2, null);
+        tracker.onRemoved(0, 1);
+
+        assertFalse(tracker.isChanged("A"));
+        assertTrue(tracker.isChanged("B"));
+        assertNull(tracker.getChangePayload("B"));
+    }
+
+    @Test
+    public void doesNotChangeTheOldItems() {
+        List<String> oldItems = new ArrayList<>(Arrays.asList("A", "B"));
+        ListUpdateTracker<String> tracker = new ListUpdateTracker<>(oldItems);
+        tracker.onRemoved(0, 2);
+
+        assertTrue(tracker.getItems().isEmpty());
+        assertEquals(Arrays.asList("A", "B"), tracker.getRemovedItems());
+        assertEquals(Arrays.asList("A", "B"), oldItems);
+    }
+}
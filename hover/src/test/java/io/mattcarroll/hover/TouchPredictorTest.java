@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mattcarroll.hover;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays synthetic drag traces through a {@link TouchPredictor} and compares the predicted
+ * positions with where the touch actually ended up.
+ */
+public class TouchPredictorTest {
+
+    private static final long SAMPLE_INTERVAL_IN_MILLIS = 8; // 120Hz touch panel
+    private static final long LOOK_AHEAD_IN_MILLIS = 16;
+    private static final int SAMPLE_COUNT = 60;
+
+    @Test
+    public void predictsConstantVelocityExactly() {
+        TouchPredictor predictor = new TouchPredictor(LOOK_AHEAD_IN_MILLIS);
+        for (int i = 0; i < SAMPLE_COUNT; ++i) {
+            long time = i * SAMPLE_INTERVAL_IN_MILLIS;
+            predictor.addSample(time, 2f * time, 100f);
+        }
+
+        long lastTime = (SAMPLE_COUNT - 1) * SAMPLE_INTERVAL_IN_MILLIS;
+        assertEquals(2f * (lastTime + LOOK_AHEAD_IN_MILLIS), predictor.getPredictedX(), 0.5f);
+        assertEquals(100f, predictor.getPredictedY(), 0.01f);
+    }
+
+    @Test
+    public void forgetsMotionAfterAPause() {
+        TouchPredictor predictor = new TouchPredictor(LOOK_AHEAD_IN_MILLIS);
+        for (int i = 0; i < SAMPLE_COUNT; ++i) {
+            predictor.addSample(i * SAMPLE_INTERVAL_IN_MILLIS, i * 10f, 0f);
+        }
+        predictor.addSample(SAMPLE_COUNT * SAMPLE_INTERVAL_IN_MILLIS + 500, 1000f, 0f);
+
+        assertEquals(1000f, predictor.getPredictedX(), 0.01f);
+    }
+
+    @Test
+    public void reducesLagOnCurvedDrag() {
+        // Finger moving in a circle with a radius of 300px, once per second.
+        assertPredictionBeatsLag(new Trace() {
+            @Override
+            public float x(long timeInMillis) {
+                return 500f + 300f * (float) Math.cos(2 * Math.PI * timeInMillis / 1000.0);
+            }
+
+            @Override
+            public float y(long timeInMillis) {
+                return 500f + 300f * (float) Math.sin(2 * Math.PI * timeInMillis / 1000.0);
+            }
+        });
+    }
+
+    @Test
+    public void reducesLagOnDeceleratingDrag() {
+        // Finger flicking to the right and slowing down.
+        assertPredictionBeatsLag(new Trace() {
+            @Override
+            public float x(long timeInMillis) {
+                float t = timeInMillis / 1000f;
+                return 100f + 3000f * t - 2000f * t * t;
+            }
+
+            @Override
+            public float y(long timeInMillis) {
+                return 800f - 400f * (timeInMillis / 1000f);
+            }
+        });
+    }
+
+    private void assertPredictionBeatsLag(Trace trace) {
+        TouchPredictor predictor = new TouchPredictor(LOOK_AHEAD_IN_MILLIS);
+        double predictionErrorSum = 0;
+        double lagErrorSum = 0;
+        int measuredSampleCount = 0;
+
+        for (int i = 0; i < SAMPLE_COUNT; ++i) {
+            long time = i * SAMPLE_INTERVAL_IN_MILLIS;
+            // Touch panels report whole pixels.
+            float sampleX = Math.round(trace.x(time));
+            float sampleY = Math.round(trace.y(time));
+            predictor.addSample(time, sampleX, sampleY);
+
+            // Give the predictor a few samples to settle before measuring.
+            if (i >= 3) {
+                long futureTime = time + LOOK_AHEAD_IN_MILLIS;
+                predictionErrorSum += distance(predictor.getPredictedX(), predictor.getPredictedY(), trace.x(futureTime), trace.y(futureTime));
+                lagErrorSum += distance(sampleX, sampleY, trace.x(futureTime), trace.y(futureTime));
+                ++measuredSampleCount;
+            }
+        }
+
+        double meanPredictionError = predictionErrorSum / measuredSampleCount;
+        double meanLagError = lagErrorSum / measuredSampleCount;
+        assertTrue("Mean prediction error (" + meanPredictionError + "px) should be well below the error of"
+                + " not predicting (" + meanLagError + "px)", meanPredictionError < meanLagError * 0.25);
+    }
+
+    private static double distance(float x1, float y1, float x2, float y2) {
+        return Math.hypot(x2 - x1, y2 - y1);
+    }
+
+    private interface Trace {
+        float x(long timeInMillis);
+
+        float y(long timeInMillis);
+    }
+}
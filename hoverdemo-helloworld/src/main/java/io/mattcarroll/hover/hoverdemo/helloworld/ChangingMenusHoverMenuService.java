@@ -139,17 +139,6 @@ public class ChangingMenusHoverMenuService extends HoverMenuService {
             return mSections.get(index);
         }
 
-        @Nullable
-        @Override
-        public Section getSection(@NonNull SectionId sectionId) {
-            for (Section section : mSections) {
-                if (sectionId.equals(section.getId())) {
-                    return section;
-                }
-            }
-            return null;
-        }
-
         @NonNull
         @Override
         public List<Section> getSections() {
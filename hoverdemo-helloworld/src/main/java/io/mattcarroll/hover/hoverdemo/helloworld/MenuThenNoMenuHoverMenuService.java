@@ -180,16 +180,6 @@ public class MenuThenNoMenuHoverMenuService extends HoverMenuService {
             }
         }
 
-        @Nullable
-        @Override
-        public Section getSection(@NonNull SectionId sectionId) {
-            if (sectionId.equals(mSection.getId())) {
-                return mSection;
-            } else {
-                return null;
-            }
-        }
-
         @NonNull
         @Override
         public List<Section> getSections() {
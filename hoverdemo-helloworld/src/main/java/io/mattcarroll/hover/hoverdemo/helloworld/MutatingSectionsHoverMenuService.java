@@ -179,17 +179,6 @@ public class MutatingSectionsHoverMenuService extends HoverMenuService {
             return mSections.get(index);
         }
 
-        @Nullable
-        @Override
-        public Section getSection(@NonNull SectionId sectionId) {
-            for (Section section : mSections) {
-                if (section.getId().equals(sectionId)) {
-                    return section;
-                }
-            }
-            return null;
-        }
-
         @NonNull
         @Override
         public List<Section> getSections() {
@@ -117,16 +117,6 @@ public class SingleSectionNotificationHoverMenuService extends HoverMenuService
             }
         }
 
-        @Nullable
-        @Override
-        public Section getSection(@NonNull SectionId sectionId) {
-            if (sectionId.equals(mSection.getId())) {
-                return mSection;
-            } else {
-                return null;
-            }
-        }
-
         @NonNull
         @Override
         public List<Section> getSections() {
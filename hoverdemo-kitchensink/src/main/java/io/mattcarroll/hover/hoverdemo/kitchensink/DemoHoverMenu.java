@@ -30,7 +30,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-import io.mattcarroll.hover.Content;
+import io.mattcarroll.hover.ContentFactory;
 import io.mattcarroll.hover.HoverMenu;
 import io.mattcarroll.hover.hoverdemo.kitchensink.theming.HoverTheme;
 import io.mattcarroll.hover.hoverdemo.kitchensink.ui.DemoTabView;
@@ -53,7 +53,7 @@ public class DemoHoverMenu extends HoverMenu {
 
     public DemoHoverMenu(@NonNull Context context,
                          @NonNull String menuId,
-                         @NonNull Map<String, Content> data,
+                         @NonNull Map<String, ContentFactory> data,
                          @NonNull HoverTheme theme) throws IOException {
         mContext = context;
         mMenuId = menuId;
@@ -119,17 +119,6 @@ public class DemoHoverMenu extends HoverMenu {
         return mSections.get(index);
     }
 
-    @Nullable
-    @Override
-    public Section getSection(@NonNull SectionId sectionId) {
-        for (Section section : mSections) {
-            if (section.getId().equals(sectionId)) {
-                return section;
-            }
-        }
-        return null;
-    }
-
     @NonNull
     @Override
     public List<Section> getSections() {
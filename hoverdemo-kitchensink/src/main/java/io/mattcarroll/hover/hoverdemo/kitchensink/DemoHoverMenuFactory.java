@@ -26,6 +26,7 @@ import java.util.UUID;
 
 import de.greenrobot.event.EventBus;
 import io.mattcarroll.hover.Content;
+import io.mattcarroll.hover.ContentFactory;
 import io.mattcarroll.hover.content.menus.DoNothingMenuAction;
 import io.mattcarroll.hover.content.menus.Menu;
 import io.mattcarroll.hover.content.menus.MenuItem;
@@ -47,7 +48,50 @@ public class DemoHoverMenuFactory {
      * Example of how to create a menu in code.
      * @return HoverMenu
      */
-    public DemoHoverMenu createDemoMenuFromCode(@NonNull Context context, @NonNull EventBus bus) throws IOException {
+    public DemoHoverMenu createDemoMenuFromCode(@NonNull final Context context, @NonNull final EventBus bus) throws IOException {
+        // Each Section's Content is only created once the user opens that Section.
+        Map<String, ContentFactory> demoMenu = new LinkedHashMap<>();
+        demoMenu.put(DemoHoverMenu.INTRO_ID, new ContentFactory() {
+            @NonNull
+            @Override
+            public Content createContent() {
+                return new HoverIntroductionContent(context, Bus.getInstance());
+            }
+        });
+        demoMenu.put(DemoHoverMenu.SELECT_COLOR_ID, new ContentFactory() {
+            @NonNull
+            @Override
+            public Content createContent() {
+                return new ColorSelectionContent(context, Bus.getInstance(), HoverThemeManager.getInstance(), HoverThemeManager.getInstance().getTheme());
+            }
+        });
+        demoMenu.put(DemoHoverMenu.APP_STATE_ID, new ContentFactory() {
+            @NonNull
+            @Override
+            public Content createContent() {
+                return new AppStateContent(context);
+            }
+        });
+        demoMenu.put(DemoHoverMenu.MENU_ID, new ContentFactory() {
+            @NonNull
+            @Override
+            public Content createContent() {
+                return createDrillDownMenuContent(context);
+            }
+        });
+        demoMenu.put(DemoHoverMenu.PLACEHOLDER_ID, new ContentFactory() {
+            @NonNull
+            @Override
+            public Content createContent() {
+                return new PlaceholderContent(context, bus);
+            }
+        });
+
+        return new DemoHoverMenu(context, "kitchensink", demoMenu, HoverThemeManager.getInstance().getTheme());
+    }
+
+    @NonNull
+    private Content createDrillDownMenuContent(@NonNull Context context) {
         Menu drillDownMenuLevelTwo = new Menu("Demo Menu - Level 2", Arrays.asList(
                 new MenuItem(UUID.randomUUID().toString(), "Google", new DoNothingMenuAction()),
                 new MenuItem(UUID.randomUUID().toString(), "Amazon", new DoNothingMenuAction())
@@ -64,15 +108,7 @@ public class DemoHoverMenuFactory {
 
         ToolbarNavigator toolbarNavigator = new ToolbarNavigator(context);
         toolbarNavigator.pushContent(drillDownMenuNavigatorContent);
-
-        Map<String, Content> demoMenu = new LinkedHashMap<>();
-        demoMenu.put(DemoHoverMenu.INTRO_ID, new HoverIntroductionContent(context, Bus.getInstance()));
-        demoMenu.put(DemoHoverMenu.SELECT_COLOR_ID, new ColorSelectionContent(context, Bus.getInstance(), HoverThemeManager.getInstance(), HoverThemeManager.getInstance().getTheme()));
-        demoMenu.put(DemoHoverMenu.APP_STATE_ID, new AppStateContent(context));
-        demoMenu.put(DemoHoverMenu.MENU_ID, toolbarNavigator);
-        demoMenu.put(DemoHoverMenu.PLACEHOLDER_ID, new PlaceholderContent(context, bus));
-
-        return new DemoHoverMenu(context, "kitchensink", demoMenu, HoverThemeManager.getInstance().getTheme());
+        return toolbarNavigator;
     }
 
 }
@@ -77,12 +77,6 @@ public class DemoHoverMenu extends HoverMenu {
         return mSection;
     }
 
-    @Nullable
-    @Override
-    public Section getSection(@NonNull SectionId sectionId) {
-        return mSection;
-    }
-
     @NonNull
     @Override
     public List<Section> getSections() {